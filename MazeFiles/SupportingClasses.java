@@ -1,5 +1,8 @@
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RecursiveAction;
 
 // Represents a mutable collection of items
 interface ICollection<T> {
@@ -62,3 +65,371 @@ class Queue<T> implements ICollection<T> {
     this.contents.addLast(item);
   }
 }
+
+// Represents a mutable collection of cell indices, kept in a primitive array
+// so that no Integer is ever boxed
+interface IIntCollection {
+  // Is this collection empty?
+  boolean isEmpty();
+
+  // EFFECT: adds the item to the collection
+  void add(int item);
+
+  // Returns the first item of the collection
+  // EFFECT: removes that first item
+  int remove();
+}
+
+// represents a stack of ints, where you both add and remove elements at the
+// end of a growing array
+class IntStack implements IIntCollection {
+  private int[] contents;
+  private int size;
+
+  IntStack() {
+    this.contents = new int[16];
+    this.size = 0;
+  }
+
+  // returns true if there are no elements in the stack
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // returns the most recently added element in the stack
+  public int remove() {
+    if (this.size == 0) {
+      throw new NoSuchElementException();
+    }
+    this.size -= 1;
+    return this.contents[this.size];
+  }
+
+  // adds an element to the top of the stack
+  public void add(int item) {
+    if (this.size == this.contents.length) {
+      this.contents = Arrays.copyOf(this.contents, this.size * 2);
+    }
+    this.contents[this.size] = item;
+    this.size += 1;
+  }
+}
+
+// represents a queue of ints in a growing ring buffer, where you add
+// elements at the back and remove them from the front
+class IntQueue implements IIntCollection {
+  private int[] contents;
+  private int head;
+  private int size;
+
+  IntQueue() {
+    this.contents = new int[16];
+    this.head = 0;
+    this.size = 0;
+  }
+
+  // returns true if it's empty
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // returns the first element of the queue(the front)
+  public int remove() {
+    if (this.size == 0) {
+      throw new NoSuchElementException();
+    }
+    int item = this.contents[this.head];
+    this.head = (this.head + 1) % this.contents.length;
+    this.size -= 1;
+    return item;
+  }
+
+  // adds an element to the back of the queue
+  // EFFECT: doubles the buffer, unwrapping it, when it is full
+  public void add(int item) {
+    if (this.size == this.contents.length) {
+      int[] bigger = new int[this.size * 2];
+      for (int i = 0; i < this.size; i += 1) {
+        bigger[i] = this.contents[(this.head + i) % this.contents.length];
+      }
+      this.contents = bigger;
+      this.head = 0;
+    }
+    this.contents[(this.head + this.size) % this.contents.length] = item;
+    this.size += 1;
+  }
+}
+
+// represents a disjoint-set forest over the integers 0 ... size - 1, kept in
+// flat primitive arrays so finding and merging never boxes or allocates
+class IntUnionFind {
+  // parent[i] is the next step from i towards its representative
+  private final int[] parent;
+  // upper bound on the height of each root's tree, never above 31
+  private final byte[] rank;
+  // number of successful unions so far
+  private int unions;
+
+  IntUnionFind(int size) {
+    this.parent = new int[size];
+    this.rank = new byte[size];
+    for (int i = 0; i < size; i += 1) {
+      this.parent[i] = i;
+    }
+    this.unions = 0;
+  }
+
+  // returns the representative of the given element
+  // EFFECT: halves the path from the element to its root, pointing every
+  // other node at its grandparent
+  int find(int item) {
+    while (this.parent[item] != item) {
+      this.parent[item] = this.parent[this.parent[item]];
+      item = this.parent[item];
+    }
+    return item;
+  }
+
+  // returns the representative of the given element without changing the
+  // forest, so that many threads can call it at once while nothing is merging
+  int root(int item) {
+    while (this.parent[item] != item) {
+      item = this.parent[item];
+    }
+    return item;
+  }
+
+  // merges the sets containing the two elements, returning false if they were
+  // already in the same set
+  // EFFECT: links the shallower root under the deeper one, on a tie the
+  // first root goes under the second
+  boolean union(int item1, int item2) {
+    int root1 = this.find(item1);
+    int root2 = this.find(item2);
+    if (root1 == root2) {
+      return false;
+    }
+
+    if (this.rank[root1] > this.rank[root2]) {
+      this.parent[root2] = root1;
+    } else {
+      this.parent[root1] = root2;
+      if (this.rank[root1] == this.rank[root2]) {
+        this.rank[root2] += 1;
+      }
+    }
+    this.unions += 1;
+    return true;
+  }
+
+  // returns how many successful unions have happened, a forest over n
+  // elements is a single tree once this reaches n - 1
+  int unions() {
+    return this.unions;
+  }
+
+  // returns the number of elements in this forest
+  int size() {
+    return this.parent.length;
+  }
+}
+
+// represents a set of the integers 0 ... size - 1 that can be emptied in
+// constant time: every member is stamped with the current epoch, and clearing
+// just starts a new epoch, so the stamps only need to be wiped when the epoch
+// wraps around
+class EpochMarks {
+  private final int[] stamps;
+  private int epoch;
+
+  EpochMarks(int size) {
+    this.stamps = new int[size];
+    this.epoch = 1;
+  }
+
+  // is the given item in the set?
+  boolean isMarked(int item) {
+    return this.stamps[item] == this.epoch;
+  }
+
+  // to add the given item to the set
+  // EFFECT: stamps the item with the current epoch
+  void mark(int item) {
+    this.stamps[item] = this.epoch;
+  }
+
+  // to empty the set
+  // EFFECT: starts a new epoch, wiping the stamps if it wrapped around
+  void clear() {
+    this.epoch += 1;
+    if (this.epoch == 0) {
+      Arrays.fill(this.stamps, 0);
+      this.epoch = 1;
+    }
+  }
+
+  // returns the number of items the set can hold
+  int size() {
+    return this.stamps.length;
+  }
+}
+
+// represents a binary min heap of the integers 0 ... capacity - 1, each with a
+// long key, indexed by item so an item's key can be lowered in place. Kept in
+// flat primitive arrays so nothing is boxed or compared through a Comparator.
+class IndexedLongHeap {
+  // the items in heap order
+  private final int[] heap;
+  // where each item is in the heap, -1 if it is not in it
+  private final int[] position;
+  // the key of each item in the heap
+  private final long[] keys;
+  private int size;
+
+  IndexedLongHeap(int capacity) {
+    this.heap = new int[capacity];
+    this.position = new int[capacity];
+    this.keys = new long[capacity];
+    Arrays.fill(this.position, -1);
+    this.size = 0;
+  }
+
+  // is the heap empty?
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // returns the number of items in the heap
+  int size() {
+    return this.size;
+  }
+
+  // is the given item in the heap?
+  boolean contains(int item) {
+    return this.position[item] != -1;
+  }
+
+  // returns the key of the given item, which must be in the heap
+  long key(int item) {
+    return this.keys[item];
+  }
+
+  // returns the item with the smallest key
+  int peek() {
+    if (this.size == 0) {
+      throw new NoSuchElementException("Heap is empty");
+    }
+    return this.heap[0];
+  }
+
+  // adds the item with the given key, or lowers its key if it is already in
+  // the heap with a bigger one, returning whether anything changed
+  // EFFECT: moves the item up the heap to where its key belongs
+  boolean offer(int item, long key) {
+    int at = this.position[item];
+    if (at == -1) {
+      at = this.size;
+      this.size += 1;
+    } else if (key >= this.keys[item]) {
+      return false;
+    }
+    this.keys[item] = key;
+    this.siftUp(item, at);
+    return true;
+  }
+
+  // to empty the heap, in time proportional to the items still in it
+  // EFFECT: forgets every item in the heap
+  void clear() {
+    for (int at = 0; at < this.size; at += 1) {
+      this.position[this.heap[at]] = -1;
+    }
+    this.size = 0;
+  }
+
+  // removes and returns the item with the smallest key
+  // EFFECT: moves the last item into the hole and down to where it belongs
+  int remove() {
+    int first = this.peek();
+    this.position[first] = -1;
+    this.size -= 1;
+    if (this.size > 0) {
+      this.siftDown(this.heap[this.size], 0);
+    }
+    return first;
+  }
+
+  // EFFECT: places the item at the given slot or above it, moving bigger
+  // parents down
+  private void siftUp(int item, int at) {
+    long key = this.keys[item];
+    while (at > 0) {
+      int parent = (at - 1) >>> 1;
+      int above = this.heap[parent];
+      if (this.keys[above] <= key) {
+        break;
+      }
+      this.heap[at] = above;
+      this.position[above] = at;
+      at = parent;
+    }
+    this.heap[at] = item;
+    this.position[item] = at;
+  }
+
+  // EFFECT: places the item at the given slot or below it, moving smaller
+  // children up
+  private void siftDown(int item, int at) {
+    long key = this.keys[item];
+    int half = this.size >>> 1;
+    while (at < half) {
+      int child = 2 * at + 1;
+      if (child + 1 < this.size && this.keys[this.heap[child + 1]] < this.keys[this.heap[child]]) {
+        child += 1;
+      }
+      int below = this.heap[child];
+      if (key <= this.keys[below]) {
+        break;
+      }
+      this.heap[at] = below;
+      this.position[below] = at;
+      at = child;
+    }
+    this.heap[at] = item;
+    this.position[item] = at;
+  }
+}
+
+// represents a fork-join task over the indices lo ... hi - 1, which splits
+// itself in half until each piece is no bigger than the grain
+// (fork-join tasks are only ever run, never serialized, so neither it nor its
+// subclasses declare a serialVersionUID)
+@SuppressWarnings("serial")
+abstract class RangeAction extends RecursiveAction {
+  private final int lo;
+  private final int hi;
+  private final int grain;
+
+  RangeAction(int lo, int hi, int grain) {
+    this.lo = lo;
+    this.hi = hi;
+    this.grain = Math.max(1, grain);
+  }
+
+  // handles the range directly if it is small enough, otherwise forks both
+  // halves and waits for them
+  protected void compute() {
+    if (this.hi - this.lo <= this.grain) {
+      this.computeRange(this.lo, this.hi);
+    } else {
+      int mid = (this.lo + this.hi) >>> 1;
+      invokeAll(this.split(this.lo, mid, this.grain), this.split(mid, this.hi, this.grain));
+    }
+  }
+
+  // does the work for the indices lo ... hi - 1
+  abstract void computeRange(int lo, int hi);
+
+  // returns the same task over a smaller range
+  abstract RangeAction split(int lo, int hi, int grain);
+}
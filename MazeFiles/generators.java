@@ -0,0 +1,1337 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Generates a MazeGrid with Boruvka's algorithm, one round per iteration,
+// using every core of the common ForkJoinPool to find each component's
+// cheapest edge. Ties are broken by creation number like the stable sort in
+// Kruskal's, so every edge is distinct, the spanning tree is unique and the
+// same weights give exactly the same maze as GridKruskal no matter how many
+// threads run.
+class GridBoruvka implements IAnimationHelper {
+  // how many cells each fork-join task handles on its own
+  static final int GRAIN = 1 << 14;
+
+  private final MazeGrid grid;
+  // weights that can be read in any order, from any thread
+  private final IEdgeWeights weights;
+  // the representative of every cell's component as of the last round
+  private final int[] component;
+  // the cheapest edge leaving each component as weight << 32 | creation
+  // number, indexed by representative, Long.MAX_VALUE if none was found
+  private final AtomicLongArray cheapest;
+  private final IntUnionFind representatives;
+  // the representatives of the components still being merged
+  private int[] roots;
+  private int rootCount;
+  private boolean finished;
+
+  GridBoruvka(MazeGrid grid, int seed, double vertBiasFactor,
+      double horizBiasFactor) {
+    this(grid, new RandomWeights(seed, vertBiasFactor, horizBiasFactor));
+  }
+
+  GridBoruvka(MazeGrid grid, IEdgeWeights weights) {
+    this.grid = grid;
+    // weights that must be drawn in order are drawn once and stored
+    if (weights.isRandomAccess()) {
+      this.weights = weights;
+    } else {
+      this.weights = new StoredWeights(grid, weights);
+    }
+    this.component = new int[grid.size()];
+    this.cheapest = new AtomicLongArray(grid.size());
+    this.representatives = new IntUnionFind(grid.size());
+    this.roots = new int[grid.size()];
+    this.rootCount = grid.size();
+    this.finished = false;
+
+    for (int cell = 0; cell < grid.size(); cell += 1) {
+      this.component[cell] = cell;
+      this.roots[cell] = cell;
+      this.cheapest.set(cell, Long.MAX_VALUE);
+    }
+  }
+
+  // To determine if the maze is finished generating, the cells form a single
+  // spanning tree or no component found an edge to another
+  public boolean isFinished() {
+    return this.finished
+        || this.representatives.unions() >= this.grid.size() - 1;
+  }
+
+  // To run one round of Boruvka's algorithm, joining every component to its
+  // nearest neighbor, which at least halves the number of components
+  // EFFECT: breaks the walls of the chosen edges and merges their components
+  public void iterate() {
+    if (this.isFinished()) {
+      return;
+    }
+    ForkJoinPool.commonPool().invoke(new BoruvkaScan(this, 0, this.grid.size(), GRAIN));
+
+    // merging is a walk over the components, which shrink every round, so
+    // doing it on one thread keeps the union find simple
+    boolean merged = false;
+    for (int i = 0; i < this.rootCount; i += 1) {
+      int root = this.roots[i];
+      long key = this.cheapest.get(root);
+      if (key != Long.MAX_VALUE) {
+        this.cheapest.set(root, Long.MAX_VALUE);
+        int bit = this.grid.edgeBit((int) key);
+        // two components that chose the same edge only break it once
+        if (this.representatives.union(this.grid.bitCell1(bit), this.grid.bitCell2(bit))) {
+          this.grid.breakWallBit(bit);
+        }
+        merged = true;
+      }
+    }
+    if (!merged) {
+      this.finished = true;
+      return;
+    }
+
+    int kept = 0;
+    for (int i = 0; i < this.rootCount; i += 1) {
+      if (this.representatives.find(this.roots[i]) == this.roots[i]) {
+        this.roots[kept] = this.roots[i];
+        kept += 1;
+      }
+    }
+    this.rootCount = kept;
+    ForkJoinPool.commonPool().invoke(new BoruvkaRelabel(this, 0, this.grid.size(), GRAIN));
+  }
+
+  // to offer every edge owned by the cells lo ... hi - 1 (their right and
+  // down walls) to the two components it joins
+  // EFFECT: lowers the cheapest edge of those components, safe to run on
+  // many threads at once
+  void scan(int lo, int hi) {
+    int width = this.grid.width();
+    for (int cell = lo; cell < hi; cell += 1) {
+      int from = this.component[cell];
+      if (cell % width != width - 1) {
+        this.offer(from, this.component[cell + 1], 2 * cell);
+      }
+      if (cell + width < this.grid.size()) {
+        this.offer(from, this.component[cell + width], 2 * cell + 1);
+      }
+    }
+  }
+
+  // to offer the edge with the given wall bit to the two given components
+  // EFFECT: lowers the cheapest edge of both, if they are different
+  private void offer(int component1, int component2, int bit) {
+    if (component1 != component2) {
+      int edge = this.grid.bitEdge(bit);
+      long key = ((long) this.weights.weight(this.grid, edge) << 32) | edge;
+      this.lower(component1, key);
+      this.lower(component2, key);
+    }
+  }
+
+  // EFFECT: atomically lowers the cheapest edge of the given component to the
+  // given key, if the key is smaller
+  private void lower(int component, long key) {
+    long current = this.cheapest.get(component);
+    while (key < current && !this.cheapest.compareAndSet(component, current, key)) {
+      current = this.cheapest.get(component);
+    }
+  }
+
+  // EFFECT: updates the component of the cells lo ... hi - 1 after a round of
+  // merging, safe to run on many threads at once
+  void relabel(int lo, int hi) {
+    for (int cell = lo; cell < hi; cell += 1) {
+      this.component[cell] = this.representatives.root(cell);
+    }
+  }
+}
+
+// Finds the cheapest edge leaving each component for a range of cells
+@SuppressWarnings("serial")
+class BoruvkaScan extends RangeAction {
+  private final GridBoruvka boruvka;
+
+  BoruvkaScan(GridBoruvka boruvka, int lo, int hi, int grain) {
+    super(lo, hi, grain);
+    this.boruvka = boruvka;
+  }
+
+  // offers the edges of the cells lo ... hi - 1
+  void computeRange(int lo, int hi) {
+    this.boruvka.scan(lo, hi);
+  }
+
+  // returns a scan over a smaller range
+  RangeAction split(int lo, int hi, int grain) {
+    return new BoruvkaScan(this.boruvka, lo, hi, grain);
+  }
+}
+
+// Relabels the component of a range of cells after a round of merging
+@SuppressWarnings("serial")
+class BoruvkaRelabel extends RangeAction {
+  private final GridBoruvka boruvka;
+
+  BoruvkaRelabel(GridBoruvka boruvka, int lo, int hi, int grain) {
+    super(lo, hi, grain);
+    this.boruvka = boruvka;
+  }
+
+  // relabels the cells lo ... hi - 1
+  void computeRange(int lo, int hi) {
+    this.boruvka.relabel(lo, hi);
+  }
+
+  // returns a relabel over a smaller range
+  RangeAction split(int lo, int hi, int grain) {
+    return new BoruvkaRelabel(this.boruvka, lo, hi, grain);
+  }
+}
+
+// Generates a MazeGrid by splitting it into square tiles, building a spanning
+// tree inside every tile at once with its own union find, then stitching the
+// tiles together with Kruskal's algorithm over only the edges between tiles.
+// Tiles weigh their edges on their own threads, so the weights must be
+// HashedWeights or stored, and the maze only depends on the weights and tile
+// size, never on how many threads run.
+// Because each tile is already connected, the stitch opens exactly one wall
+// between some pairs of neighboring tiles, so large tiles keep those seams
+// rare.
+class GridTiles implements IAnimationHelper {
+  private final MazeGrid grid;
+  private final ForkJoinPool pool;
+  // weights that can be read in any order, from any thread
+  private final IEdgeWeights weights;
+  // the width and height of every tile, except at the right and bottom
+  private final int tileSize;
+  private final int tilesAcross;
+  private final int tilesDown;
+  private boolean tilesBuilt;
+  private boolean stitched;
+
+  GridTiles(MazeGrid grid, long seed, double vertBiasFactor, double horizBiasFactor,
+      int tileSize) {
+    this(grid, new HashedWeights(seed, vertBiasFactor, horizBiasFactor), tileSize,
+        ForkJoinPool.commonPool());
+  }
+
+  GridTiles(MazeGrid grid, IEdgeWeights weights, int tileSize, ForkJoinPool pool) {
+    if (tileSize < 1) {
+      throw new IllegalArgumentException("Tiles must have at least one cell");
+    }
+    this.grid = grid;
+    this.pool = pool;
+    // weights that must be drawn in order are drawn once and stored
+    if (weights.isRandomAccess()) {
+      this.weights = weights;
+    } else {
+      this.weights = new StoredWeights(grid, weights);
+    }
+    this.tileSize = tileSize;
+    this.tilesAcross = (grid.width() + tileSize - 1) / tileSize;
+    this.tilesDown = (grid.height() + tileSize - 1) / tileSize;
+    this.tilesBuilt = false;
+    this.stitched = false;
+  }
+
+  // To determine if the maze is finished, once the tiles are stitched
+  public boolean isFinished() {
+    return this.stitched;
+  }
+
+  // To build every tile in parallel on the first call, then stitch them
+  // together on the second
+  // EFFECT: breaks the walls of the spanning tree
+  public void iterate() {
+    if (!this.tilesBuilt) {
+      this.pool.invoke(new TileAction(this, 0, this.tilesAcross * this.tilesDown, 1));
+      this.tilesBuilt = true;
+    } else if (!this.stitched) {
+      this.stitch();
+      this.stitched = true;
+    }
+  }
+
+  // returns the weight of the edge with the given wall bit
+  private int weightOfBit(int bit) {
+    return this.weights.weight(this.grid, this.grid.bitEdge(bit));
+  }
+
+  // to build a spanning tree of the given tile with Kruskal's algorithm,
+  // using only the edges inside it, safe to run on many threads at once
+  // EFFECT: breaks the walls of the tile's spanning tree
+  void buildTile(int tile) {
+    int left = (tile % this.tilesAcross) * this.tileSize;
+    int top = (tile / this.tilesAcross) * this.tileSize;
+    int across = Math.min(this.tileSize, this.grid.width() - left);
+    int down = Math.min(this.tileSize, this.grid.height() - top);
+
+    // the inside edges in the order Utils.createEdges would make them
+    int count = (across - 1) * down + across * (down - 1);
+    int[] bits = new int[count];
+    int[] weights = new int[count];
+    int edge = 0;
+    for (int y = top; y < top + down; y += 1) {
+      for (int x = left; x < left + across; x += 1) {
+        int cell = this.grid.index(x, y);
+        if (y > top) {
+          bits[edge] = this.grid.wallBit(cell, MazeGrid.UP);
+          weights[edge] = this.weightOfBit(bits[edge]);
+          edge += 1;
+        }
+        if (x < left + across - 1) {
+          bits[edge] = this.grid.wallBit(cell, MazeGrid.RIGHT);
+          weights[edge] = this.weightOfBit(bits[edge]);
+          edge += 1;
+        }
+      }
+    }
+
+    IntUnionFind representatives = new IntUnionFind(across * down);
+    int[] order = new EdgeOrder().sort(weights);
+    for (int i = 0; i < order.length && representatives.unions() < across * down - 1; i += 1) {
+      int bit = bits[order[i]];
+      int cell1 = this.grid.bitCell1(bit);
+      int cell2 = this.grid.bitCell2(bit);
+      if (representatives.union(this.localIndex(cell1, left, top, across),
+          this.localIndex(cell2, left, top, across))) {
+        this.grid.breakWallBitConcurrently(bit);
+      }
+    }
+  }
+
+  // returns the index of the given cell within the tile at left, top
+  private int localIndex(int cell, int left, int top, int across) {
+    return (this.grid.y(cell) - top) * across + this.grid.x(cell) - left;
+  }
+
+  // returns the tile the given cell is in
+  private int tileOf(int cell) {
+    return (this.grid.y(cell) / this.tileSize) * this.tilesAcross
+        + this.grid.x(cell) / this.tileSize;
+  }
+
+  // to join the finished tiles with Kruskal's algorithm over the edges that
+  // cross between them, where every tile starts as one component
+  // EFFECT: breaks the walls of the chosen crossing edges
+  void stitch() {
+    int tiles = this.tilesAcross * this.tilesDown;
+    int count = (this.tilesAcross - 1) * this.grid.height()
+        + (this.tilesDown - 1) * this.grid.width();
+    int[] bits = new int[count];
+    int[] weights = new int[count];
+    // only the seams are walked, in the order Utils.createEdges would make
+    // their edges so that ties in weight break the same way: along the top
+    // of every row of tiles but the first, every cell's up edge comes before
+    // its right edge, and in every other row only the cells on the right
+    // side of a tile have an edge to add
+    int edge = 0;
+    for (int y = 0; y < this.grid.height(); y += 1) {
+      if (y > 0 && y % this.tileSize == 0) {
+        int seam = this.tileSize - 1;
+        for (int x = 0; x < this.grid.width(); x += 1) {
+          int cell = this.grid.index(x, y);
+          bits[edge] = this.grid.wallBit(cell, MazeGrid.UP);
+          weights[edge] = this.weightOfBit(bits[edge]);
+          edge += 1;
+          if (x == seam && x < this.grid.width() - 1) {
+            bits[edge] = this.grid.wallBit(cell, MazeGrid.RIGHT);
+            weights[edge] = this.weightOfBit(bits[edge]);
+            edge += 1;
+            seam += this.tileSize;
+          }
+        }
+      } else {
+        for (int x = this.tileSize - 1; x < this.grid.width() - 1; x += this.tileSize) {
+          bits[edge] = this.grid.wallBit(this.grid.index(x, y), MazeGrid.RIGHT);
+          weights[edge] = this.weightOfBit(bits[edge]);
+          edge += 1;
+        }
+      }
+    }
+
+    IntUnionFind representatives = new IntUnionFind(tiles);
+    int[] order = new EdgeOrder().sort(weights);
+    for (int i = 0; i < order.length && representatives.unions() < tiles - 1; i += 1) {
+      int bit = bits[order[i]];
+      if (representatives.union(this.tileOf(this.grid.bitCell1(bit)),
+          this.tileOf(this.grid.bitCell2(bit)))) {
+        this.grid.breakWallBit(bit);
+      }
+    }
+  }
+}
+
+// Builds a range of tiles of a GridTiles maze
+@SuppressWarnings("serial")
+class TileAction extends RangeAction {
+  private final GridTiles tiles;
+
+  TileAction(GridTiles tiles, int lo, int hi, int grain) {
+    super(lo, hi, grain);
+    this.tiles = tiles;
+  }
+
+  // builds the tiles lo ... hi - 1
+  void computeRange(int lo, int hi) {
+    for (int tile = lo; tile < hi; tile += 1) {
+      this.tiles.buildTile(tile);
+    }
+  }
+
+  // returns the same task over fewer tiles
+  RangeAction split(int lo, int hi, int grain) {
+    return new TileAction(this.tiles, lo, hi, grain);
+  }
+}
+
+// Generates a MazeGrid with Prim's algorithm, growing one connected region
+// from the top left cell by always opening the cheapest wall on its border.
+// Every cell next to the region waits in an indexed heap, keyed by its
+// cheapest wall into the region as weight << 32 | creation number, so ties
+// break like the stable sort in Kruskal's and the same weights give exactly
+// the same maze as GridKruskal, without a union find or any Edge objects.
+// Needs 17 bytes per cell: 16 for the heap and 1 for the region.
+class GridPrim implements IAnimationHelper {
+  private final MazeGrid grid;
+  // weights that can be read in any order
+  private final IEdgeWeights weights;
+  // is each cell part of the region yet?
+  private final boolean[] inRegion;
+  // the cells next to the region, keyed by their cheapest wall into it
+  private final IndexedLongHeap frontier;
+  private int added;
+
+  GridPrim(MazeGrid grid, int seed, double vertBiasFactor, double horizBiasFactor) {
+    this(grid, new RandomWeights(seed, vertBiasFactor, horizBiasFactor));
+  }
+
+  GridPrim(MazeGrid grid, IEdgeWeights weights) {
+    this.grid = grid;
+    // weights that must be drawn in order are drawn once and stored
+    if (weights.isRandomAccess()) {
+      this.weights = weights;
+    } else {
+      this.weights = new StoredWeights(grid, weights);
+    }
+    this.inRegion = new boolean[grid.size()];
+    this.frontier = new IndexedLongHeap(grid.size());
+    this.added = 0;
+    this.add(0);
+  }
+
+  // To determine if the maze is finished generating, every cell is in the
+  // region
+  public boolean isFinished() {
+    return this.added == this.grid.size();
+  }
+
+  // To add the cell with the cheapest wall into the region
+  // EFFECT: breaks that wall and adds the cell's neighbors to the frontier
+  public void iterate() {
+    if (this.isFinished()) {
+      return;
+    }
+    int cell = this.frontier.peek();
+    int bit = this.grid.edgeBit((int) this.frontier.key(cell));
+    this.frontier.remove();
+    this.grid.breakWallBit(bit);
+    this.add(cell);
+  }
+
+  // To grow the whole maze at once, without stopping to draw
+  // EFFECT: breaks the walls of the spanning tree
+  void generate() {
+    while (!this.isFinished()) {
+      this.iterate();
+    }
+  }
+
+  // to add the given cell to the region
+  // EFFECT: offers the walls between the cell and its neighbors outside the
+  // region to the frontier
+  private void add(int cell) {
+    this.inRegion[cell] = true;
+    this.added += 1;
+    for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+      int next = this.grid.neighbor(cell, dir);
+      if (next != -1 && !this.inRegion[next]) {
+        int edge = this.grid.bitEdge(this.grid.wallBit(cell, dir));
+        this.frontier.offer(next, ((long) this.weights.weight(this.grid, edge) << 32) | edge);
+      }
+    }
+  }
+}
+
+// Generates a MazeGrid with Wilson's algorithm, which picks every spanning
+// tree of the grid with the same chance, unlike weighted Kruskal's or Prim's.
+// Starting from the top left cell as the tree, each cell outside the tree
+// random walks until it hits the tree, remembering only the direction it
+// last left each cell by, so walking back into a cell erases the loop it
+// made. The walk, without its loops, then joins the tree.
+// Needs 2 bytes per cell, and ignores the biases, which would make the maze
+// no longer uniform.
+class GridWilson implements IAnimationHelper {
+  private final MazeGrid grid;
+  private final SplittableRandom rand;
+  // the direction each walk last left each cell by
+  private final byte[] next;
+  private final boolean[] inTree;
+  // every cell before this one is in the tree
+  private int start;
+
+  GridWilson(MazeGrid grid, long seed) {
+    this.grid = grid;
+    this.rand = new SplittableRandom(seed);
+    this.next = new byte[grid.size()];
+    this.inTree = new boolean[grid.size()];
+    this.inTree[0] = true;
+    this.start = 1;
+  }
+
+  // To determine if the maze is finished generating, every cell is in the
+  // tree
+  public boolean isFinished() {
+    return this.start == this.grid.size();
+  }
+
+  // To join the first cell outside the tree to it with a loop-erased random
+  // walk
+  // EFFECT: breaks the walls along the walk, adds its cells to the tree and
+  // moves on to the next cell outside it
+  public void iterate() {
+    if (this.isFinished()) {
+      return;
+    }
+    int cell = this.start;
+    while (!this.inTree[cell]) {
+      int dir = this.rand.nextInt(4);
+      int neighbor = this.grid.neighbor(cell, dir);
+      if (neighbor != -1) {
+        this.next[cell] = (byte) dir;
+        cell = neighbor;
+      }
+    }
+
+    cell = this.start;
+    while (!this.inTree[cell]) {
+      this.inTree[cell] = true;
+      this.grid.breakWall(cell, this.next[cell]);
+      cell = this.grid.neighbor(cell, this.next[cell]);
+    }
+    while (this.start < this.grid.size() && this.inTree[this.start]) {
+      this.start += 1;
+    }
+  }
+
+  // To generate the whole maze at once, without stopping to draw
+  // EFFECT: breaks the walls of the spanning tree
+  void generate() {
+    while (!this.isFinished()) {
+      this.iterate();
+    }
+  }
+}
+
+// Generates a MazeGrid one row at a time, where every row only depends on the
+// seed and its row number, so rows can be made in any order on any number of
+// threads and still give the same maze. A row only knocks down its own right
+// and down walls, 32 cells at a time from 64-bit masks, so rows never clear
+// each other's bits, and the words they share are cleared atomically.
+// Like EllerRows, a bigger horizontal bias makes openings between rows rarer
+// and a bigger vertical bias makes openings between columns rarer.
+abstract class AGridRows implements IAnimationHelper {
+  // about how many cells each fork-join task handles on its own
+  static final int GRAIN = 1 << 14;
+
+  protected final MazeGrid grid;
+  private final long seed;
+  // the chance of opening a wall to the right, out of 65536
+  private final int rightChance;
+  // how many 64-bit words one row of cells needs
+  protected final int wordsPerRow;
+  private int nextRow;
+
+  AGridRows(MazeGrid grid, long seed, double vertBiasFactor, double horizBiasFactor) {
+    this.grid = grid;
+    this.seed = seed;
+    double vert = Math.max(0, vertBiasFactor);
+    double horiz = Math.max(0, horizBiasFactor);
+    if (vert + horiz == 0) {
+      this.rightChance = 1 << 15;
+    } else {
+      this.rightChance = (int) Math.round(horiz / (vert + horiz) * (1 << 16));
+    }
+    this.wordsPerRow = (grid.width() + 63) / 64;
+    this.nextRow = 0;
+  }
+
+  // To determine if the maze is finished generating, every row is made
+  public boolean isFinished() {
+    return this.nextRow == this.grid.height();
+  }
+
+  // To make the next row of the maze
+  // EFFECT: breaks the walls of that row
+  public void iterate() {
+    if (!this.isFinished()) {
+      this.makeRow(this.nextRow);
+      this.nextRow += 1;
+    }
+  }
+
+  // To make every row that is left at once, on every core of the common
+  // ForkJoinPool
+  // EFFECT: breaks the walls of those rows
+  void generate() {
+    this.generate(ForkJoinPool.commonPool());
+  }
+
+  // To make every row that is left at once, on the threads of the given pool
+  // EFFECT: breaks the walls of those rows
+  void generate(ForkJoinPool pool) {
+    int grain = Math.max(1, GRAIN / this.grid.width());
+    pool.invoke(new RowAction(this, this.nextRow, this.grid.height(), grain));
+    this.nextRow = this.grid.height();
+  }
+
+  // to make the given row, safe to run on many threads at once
+  // EFFECT: breaks the walls of that row
+  abstract void makeRow(int y);
+
+  // returns 64 random bits for the cells 64 * word ... of row y, each set with
+  // the chance of opening to the right. Every 16 bits of the chance take one
+  // hashed word, ORed in for a 1 and ANDed in for a 0, from the lowest bit up.
+  long rightCoins(int y, int word) {
+    if (this.rightChance >= 1 << 16) {
+      return -1L;
+    } else if (this.rightChance <= 0) {
+      return 0;
+    }
+    long counter = ((long) y * this.wordsPerRow + word) << 4;
+    long coins = 0;
+    for (int i = Integer.numberOfTrailingZeros(this.rightChance); i < 16; i += 1) {
+      long random = HashedWeights.hash(this.seed, counter | i);
+      if (((this.rightChance >>> i) & 1) == 1) {
+        coins |= random;
+      } else {
+        coins &= random;
+      }
+    }
+    return coins;
+  }
+
+  // returns a random number from 0 to bound - 1 for the cell at x, y, from
+  // counters the coins never use
+  int randomBelow(int x, int y, int bound) {
+    long random = HashedWeights.hash(this.seed, -1 - this.grid.index(x, y));
+    return (int) (((random >>> 32) * bound) >>> 32);
+  }
+
+  // to knock down the walls of row y that are set in the given masks, one bit
+  // per cell, the walls around the outside of the maze stay up
+  // EFFECT: clears those walls of the grid, safe to run on many threads at
+  // once
+  void writeRow(int y, long[] right, long[] down) {
+    int width = this.grid.width();
+    right[(width - 1) >>> 6] &= ~(1L << (width - 1));
+    if (y == this.grid.height() - 1) {
+      Arrays.fill(down, 0);
+    }
+    for (int x = 0; x < width; x += 32) {
+      int shift = x & 63;
+      long rightBits = (right[x >>> 6] >>> shift) & 0xFFFFFFFFL;
+      long downBits = (down[x >>> 6] >>> shift) & 0xFFFFFFFFL;
+      int cells = Math.min(32, width - x);
+      if (cells < 32) {
+        rightBits &= (1L << cells) - 1;
+        downBits &= (1L << cells) - 1;
+      }
+      this.grid.breakWallRunConcurrently(2 * this.grid.index(x, y),
+          this.spread(rightBits) | (this.spread(downBits) << 1));
+    }
+  }
+
+  // returns the low 32 bits of the given value moved to the even bits, so bit
+  // i becomes bit 2 * i
+  private long spread(long bits) {
+    bits = (bits | (bits << 16)) & 0x0000FFFF0000FFFFL;
+    bits = (bits | (bits << 8)) & 0x00FF00FF00FF00FFL;
+    bits = (bits | (bits << 4)) & 0x0F0F0F0F0F0F0F0FL;
+    bits = (bits | (bits << 2)) & 0x3333333333333333L;
+    return (bits | (bits << 1)) & 0x5555555555555555L;
+  }
+}
+
+// Makes a range of rows of a row-by-row generator
+@SuppressWarnings("serial")
+class RowAction extends RangeAction {
+  private final AGridRows rows;
+
+  RowAction(AGridRows rows, int lo, int hi, int grain) {
+    super(lo, hi, grain);
+    this.rows = rows;
+  }
+
+  // makes the rows lo ... hi - 1
+  void computeRange(int lo, int hi) {
+    for (int y = lo; y < hi; y += 1) {
+      this.rows.makeRow(y);
+    }
+  }
+
+  // returns an action over fewer rows
+  RangeAction split(int lo, int hi, int grain) {
+    return new RowAction(this.rows, lo, hi, grain);
+  }
+}
+
+// Generates a MazeGrid where every cell opens either right or down, so the
+// bottom row and right column are long corridors and every path leads down
+// and to the right. A whole word of cells is decided by one mask of coins.
+class GridBinaryTree extends AGridRows {
+
+  GridBinaryTree(MazeGrid grid, long seed, double vertBiasFactor, double horizBiasFactor) {
+    super(grid, seed, vertBiasFactor, horizBiasFactor);
+  }
+
+  // to open every cell of the given row either right or down, the bottom row
+  // only right and the right column only down
+  // EFFECT: breaks those walls
+  void makeRow(int y) {
+    long[] right = new long[this.wordsPerRow];
+    long[] down = new long[this.wordsPerRow];
+    for (int word = 0; word < this.wordsPerRow; word += 1) {
+      if (y == this.grid.height() - 1) {
+        right[word] = -1L;
+      } else {
+        right[word] = this.rightCoins(y, word);
+        down[word] = ~right[word];
+      }
+    }
+    int last = this.grid.width() - 1;
+    down[last >>> 6] |= 1L << last;
+    this.writeRow(y, right, down);
+  }
+}
+
+// Generates a MazeGrid with the Sidewinder algorithm: every row is split into
+// runs of cells joined to the right, and every run opens down from one random
+// cell, above a bottom row that is a single corridor. Runs end wherever the
+// mask of coins has a 0, found a word at a time.
+class GridSidewinder extends AGridRows {
+
+  GridSidewinder(MazeGrid grid, long seed, double vertBiasFactor, double horizBiasFactor) {
+    super(grid, seed, vertBiasFactor, horizBiasFactor);
+  }
+
+  // to split the given row into runs, opening each one down once, or to open
+  // all of the bottom row
+  // EFFECT: breaks those walls
+  void makeRow(int y) {
+    long[] right = new long[this.wordsPerRow];
+    long[] down = new long[this.wordsPerRow];
+    int width = this.grid.width();
+    if (y == this.grid.height() - 1) {
+      Arrays.fill(right, -1L);
+      this.writeRow(y, right, down);
+      return;
+    }
+
+    for (int word = 0; word < this.wordsPerRow; word += 1) {
+      right[word] = this.rightCoins(y, word);
+    }
+    // the last run always ends at the right wall
+    right[(width - 1) >>> 6] &= ~(1L << (width - 1));
+
+    int runStart = 0;
+    for (int word = 0; word < this.wordsPerRow; word += 1) {
+      long ends = ~right[word];
+      while (ends != 0) {
+        int x = 64 * word + Long.numberOfTrailingZeros(ends);
+        if (x >= width) {
+          break;
+        }
+        int opening = runStart + this.randomBelow(x, y, x - runStart + 1);
+        down[opening >>> 6] |= 1L << opening;
+        runStart = x + 1;
+        ends &= ends - 1;
+      }
+    }
+    this.writeRow(y, right, down);
+  }
+}
+
+// Generates a MazeGrid with the recursive backtracker: a depth first walk
+// from the top left cell that carves into a random unvisited neighbor, and
+// backs up along its path when there are none, which makes long winding
+// corridors with few branches. The path is kept on an int[] stack instead of
+// the call stack, so even a path through every cell can't overflow it.
+// Needs 4 bytes per cell for the stack and 1 bit per cell for visited.
+class GridBacktracker implements IAnimationHelper {
+  private final MazeGrid grid;
+  private final SplittableRandom rand;
+  // the cells of the current path, from the top left cell
+  private final int[] stack;
+  private int depth;
+  private int carved;
+  // one bit per cell, set once it has been carved into
+  private final long[] visited;
+  // the unvisited neighbors of the cell being looked at
+  private final int[] choices;
+
+  GridBacktracker(MazeGrid grid, long seed) {
+    this.grid = grid;
+    this.rand = new SplittableRandom(seed);
+    this.stack = new int[grid.size()];
+    this.visited = new long[(grid.size() + 63) / 64];
+    this.choices = new int[4];
+    this.visited[0] = 1L;
+    this.stack[0] = 0;
+    this.depth = 1;
+    this.carved = 1;
+  }
+
+  // To determine if the maze is finished generating, every cell has been
+  // carved into, so there is no need to back out of the maze
+  public boolean isFinished() {
+    return this.carved == this.grid.size();
+  }
+
+  // To carve into one more cell, backing up as far as needed to find a cell
+  // with an unvisited neighbor
+  // EFFECT: breaks the wall into that cell and pushes it onto the path
+  public void iterate() {
+    while (!this.isFinished()) {
+      int cell = this.stack[this.depth - 1];
+      int count = 0;
+      for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+        int next = this.grid.neighbor(cell, dir);
+        if (next != -1 && !this.isVisited(next)) {
+          this.choices[count] = dir;
+          count += 1;
+        }
+      }
+      if (count == 0) {
+        this.depth -= 1;
+      } else {
+        int dir = this.choices[this.rand.nextInt(count)];
+        int next = this.grid.neighbor(cell, dir);
+        this.grid.breakWall(cell, dir);
+        this.visited[next >>> 6] |= 1L << next;
+        this.stack[this.depth] = next;
+        this.depth += 1;
+        this.carved += 1;
+        return;
+      }
+    }
+  }
+
+  // To carve the whole maze at once, without stopping to draw
+  // EFFECT: breaks the walls of the spanning tree
+  void generate() {
+    while (!this.isFinished()) {
+      this.iterate();
+    }
+  }
+
+  // has the given cell been carved into?
+  private boolean isVisited(int cell) {
+    return (this.visited[cell >>> 6] & (1L << cell)) != 0;
+  }
+}
+
+// Generates a MazeGrid by recursive division: starting from one open room,
+// every chamber is split in two by a wall with a single gap, until chambers
+// are only one cell wide or tall. Chambers never overlap, so each one is
+// split on its own, as a fork-join task for big chambers and on an IntStack
+// below the cutoff. The wall and gap of a chamber are hashed from the seed
+// and the chamber, so the maze is the same on any number of threads, and the
+// same animated one chamber at a time.
+// Tall chambers are more often cut by a wall between rows and wide ones by a
+// wall between columns, and like the weights in GridKruskal, a bigger
+// horizontal bias makes walls between rows more likely and a bigger vertical
+// bias makes walls between columns more likely.
+class GridDivision implements IAnimationHelper {
+  // how many cells a chamber can have before its halves become tasks of
+  // their own
+  static final int CUTOFF = 1 << 12;
+
+  private final MazeGrid grid;
+  private final long seed;
+  private final double vertBiasFactor;
+  private final double horizBiasFactor;
+  private final int cutoff;
+  // the chambers still to be split, as x, y, width, height
+  private final IntStack chambers;
+
+  GridDivision(MazeGrid grid, long seed, double vertBiasFactor, double horizBiasFactor) {
+    this(grid, seed, vertBiasFactor, horizBiasFactor, CUTOFF);
+  }
+
+  // EFFECT: knocks down every wall inside the grid
+  GridDivision(MazeGrid grid, long seed, double vertBiasFactor, double horizBiasFactor,
+      int cutoff) {
+    if (cutoff < 1) {
+      throw new IllegalArgumentException("Cutoff must be at least one cell");
+    }
+    this.grid = grid;
+    this.seed = seed;
+    this.vertBiasFactor = Math.max(0, vertBiasFactor);
+    this.horizBiasFactor = Math.max(0, horizBiasFactor);
+    this.cutoff = cutoff;
+    this.chambers = new IntStack();
+    grid.openAllWalls();
+    this.push(this.chambers, 0, 0, grid.width(), grid.height());
+  }
+
+  // To determine if the maze is finished generating, no chamber can be split
+  public boolean isFinished() {
+    return this.chambers.isEmpty();
+  }
+
+  // To split the next chamber in two
+  // EFFECT: builds its wall and adds its halves to the chambers
+  public void iterate() {
+    if (!this.isFinished()) {
+      this.divideNext(this.chambers);
+    }
+  }
+
+  // To split every chamber that is left at once, on every core of the common
+  // ForkJoinPool
+  // EFFECT: builds the walls of the maze
+  void generate() {
+    this.generate(ForkJoinPool.commonPool());
+  }
+
+  // To split every chamber that is left at once, on the threads of the given
+  // pool
+  // EFFECT: builds the walls of the maze
+  void generate(ForkJoinPool pool) {
+    while (!this.chambers.isEmpty()) {
+      int height = this.chambers.remove();
+      int width = this.chambers.remove();
+      int y = this.chambers.remove();
+      int x = this.chambers.remove();
+      pool.invoke(new DivisionAction(this, x, y, width, height));
+    }
+  }
+
+  // to split the given chamber and all of its halves, handing big halves to
+  // new tasks and splitting small ones on a stack, safe to run on many
+  // threads at once
+  // EFFECT: builds the walls of the chamber
+  void divide(int x, int y, int width, int height) {
+    IntStack halves = new IntStack();
+    this.push(halves, x, y, width, height);
+    if (width * height <= this.cutoff) {
+      while (!halves.isEmpty()) {
+        this.divideNext(halves);
+      }
+      return;
+    }
+
+    this.divideNext(halves);
+    ArrayList<DivisionAction> tasks = new ArrayList<DivisionAction>();
+    while (!halves.isEmpty()) {
+      int h = halves.remove();
+      int w = halves.remove();
+      int top = halves.remove();
+      int left = halves.remove();
+      tasks.add(new DivisionAction(this, left, top, w, h));
+    }
+    RecursiveAction.invokeAll(tasks);
+  }
+
+  // to split the chamber on top of the given stack in two
+  // EFFECT: builds its wall with one gap in it, and pushes the halves that
+  // can still be split
+  private void divideNext(IntStack stack) {
+    int height = stack.remove();
+    int width = stack.remove();
+    int y = stack.remove();
+    int x = stack.remove();
+    long random = HashedWeights.hash(HashedWeights.hash(this.seed, this.grid.index(x, y)),
+        ((long) width << 32) | height);
+
+    // 21 random bits for each choice
+    double across = this.horizBiasFactor * height;
+    double down = this.vertBiasFactor * width;
+    double chance = across + down == 0 ? 0.5 : across / (across + down);
+    boolean horizontal = (random & 0x1FFFFF) < chance * (1 << 21);
+    if (horizontal) {
+      int wall = y + this.below(random >>> 21, height - 1);
+      int gap = x + this.below(random >>> 42, width);
+      for (int col = x; col < x + width; col += 1) {
+        if (col != gap) {
+          this.grid.buildWallBitConcurrently(2 * this.grid.index(col, wall) + 1);
+        }
+      }
+      this.push(stack, x, y, width, wall - y + 1);
+      this.push(stack, x, wall + 1, width, y + height - wall - 1);
+    } else {
+      int wall = x + this.below(random >>> 21, width - 1);
+      int gap = y + this.below(random >>> 42, height);
+      for (int row = y; row < y + height; row += 1) {
+        if (row != gap) {
+          this.grid.buildWallBitConcurrently(2 * this.grid.index(wall, row));
+        }
+      }
+      this.push(stack, x, y, wall - x + 1, height);
+      this.push(stack, wall + 1, y, x + width - wall - 1, height);
+    }
+  }
+
+  // returns a number from 0 to bound - 1 from the low 21 of the given bits
+  private int below(long bits, int bound) {
+    return (int) (((bits & 0x1FFFFF) * bound) >>> 21);
+  }
+
+  // to add the given chamber to the stack, if it is big enough to split
+  // EFFECT: pushes x, y, width and height
+  private void push(IntStack stack, int x, int y, int width, int height) {
+    if (width > 1 && height > 1) {
+      stack.add(x);
+      stack.add(y);
+      stack.add(width);
+      stack.add(height);
+    }
+  }
+}
+
+// Splits a chamber of a recursive division maze and all of its halves
+@SuppressWarnings("serial")
+class DivisionAction extends RecursiveAction {
+  private final GridDivision division;
+  private final int x;
+  private final int y;
+  private final int width;
+  private final int height;
+
+  DivisionAction(GridDivision division, int x, int y, int width, int height) {
+    this.division = division;
+    this.x = x;
+    this.y = y;
+    this.width = width;
+    this.height = height;
+  }
+
+  // splits the chamber, forking its big halves
+  protected void compute() {
+    this.division.divide(this.x, this.y, this.width, this.height);
+  }
+}
+
+// Keeps a finished maze changing with the origin shift algorithm. The maze
+// is held as a tree rooted at the origin, every cell knowing the direction of
+// its parent. Each step points the origin at a random neighbor, opening the
+// wall between them, and makes that neighbor the new origin, closing the wall
+// to its old parent, so the maze is always a spanning tree and every step
+// changes at most two walls in constant time.
+// Needs 1 byte per cell.
+class OriginShift {
+  // the parent direction of the origin
+  static final byte ROOT = -1;
+
+  private final MazeGrid grid;
+  private final SplittableRandom rand;
+  // the direction of each cell's parent
+  private final byte[] parent;
+  private int origin;
+
+  // the given maze must be a spanning tree, and is rooted at the given cell
+  OriginShift(MazeGrid grid, int origin, long seed) {
+    this.grid = grid;
+    this.rand = new SplittableRandom(seed);
+    this.parent = new byte[grid.size()];
+    this.origin = origin;
+
+    // point every cell back along the path it was found by from the origin
+    boolean[] seen = new boolean[grid.size()];
+    IntQueue worklist = new IntQueue();
+    seen[origin] = true;
+    this.parent[origin] = ROOT;
+    worklist.add(origin);
+    int reached = 1;
+    while (!worklist.isEmpty()) {
+      int cell = worklist.remove();
+      for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+        if (this.grid.isOpen(cell, dir) && dir != this.parent[cell]) {
+          int next = this.grid.neighbor(cell, dir);
+          // a cell found twice means the maze has a loop
+          if (seen[next]) {
+            throw new IllegalArgumentException("Maze must be a spanning tree");
+          }
+          seen[next] = true;
+          this.parent[next] = (byte) this.opposite(dir);
+          worklist.add(next);
+          reached += 1;
+        }
+      }
+    }
+    if (reached != grid.size()) {
+      throw new IllegalArgumentException("Maze must be a spanning tree");
+    }
+  }
+
+  // returns the current origin
+  int origin() {
+    return this.origin;
+  }
+
+  // returns the direction of the given cell's parent, ROOT for the origin
+  int parent(int cell) {
+    return this.parent[cell];
+  }
+
+  // To move the origin to a random neighbor
+  // EFFECT: opens the wall between the origin and that neighbor, and closes
+  // the wall between the neighbor and its old parent
+  void shift() {
+    if (this.grid.size() == 1) {
+      return;
+    }
+    int dir = this.rand.nextInt(4);
+    int next = this.grid.neighbor(this.origin, dir);
+    while (next == -1) {
+      dir = this.rand.nextInt(4);
+      next = this.grid.neighbor(this.origin, dir);
+    }
+    // the wall is already open when the neighbor's parent was the origin
+    if (this.grid.neighbor(next, this.parent[next]) != this.origin) {
+      this.grid.buildWall(next, this.parent[next]);
+      this.grid.breakWall(this.origin, dir);
+    }
+    this.parent[this.origin] = (byte) dir;
+    this.parent[next] = ROOT;
+    this.origin = next;
+  }
+
+  // returns the direction facing the other way
+  private int opposite(int direction) {
+    if (direction == MazeGrid.UP) {
+      return MazeGrid.DOWN;
+    } else if (direction == MazeGrid.DOWN) {
+      return MazeGrid.UP;
+    } else if (direction == MazeGrid.LEFT) {
+      return MazeGrid.RIGHT;
+    }
+    return MazeGrid.LEFT;
+  }
+}
+
+// Represents somewhere the rows of a streamed maze go, like a MazeGrid, a
+// renderer or a file
+interface IRowSink {
+  // to take the walls of the given row, bit 2 * x set when the right wall of
+  // column x is up and bit 2 * x + 1 when its down wall is up, the same layout
+  // a MazeGrid uses. The array is reused for the next row, so copy it to keep
+  // it.
+  void acceptRow(int y, long[] walls);
+}
+
+// Writes streamed rows into a MazeGrid, for mazes small enough to hold
+class GridRowSink implements IRowSink {
+  private final MazeGrid grid;
+
+  GridRowSink(MazeGrid grid) {
+    this.grid = grid;
+  }
+
+  // to knock down every wall that is down in the given row
+  // EFFECT: clears the walls of row y of the grid
+  public void acceptRow(int y, long[] walls) {
+    for (int x = 0; x < this.grid.width(); x += 1) {
+      int cell = this.grid.index(x, y);
+      if ((walls[(2 * x) >>> 6] & (1L << (2 * x))) == 0) {
+        this.grid.breakWall(cell, MazeGrid.RIGHT);
+      }
+      if ((walls[(2 * x + 1) >>> 6] & (1L << (2 * x + 1))) == 0) {
+        this.grid.breakWall(cell, MazeGrid.DOWN);
+      }
+    }
+  }
+}
+
+// Generates a maze one row at a time with Eller's algorithm, handing each row
+// to a sink as soon as it is done, so a maze can have as many rows as wanted
+// while only a few ints per column are ever held.
+// Every cell of the current row belongs to a set of cells it is already
+// joined to. Neighbors in different sets are joined at random, then every set
+// opens at least one wall down into the next row, and the last row joins all
+// the sets that are left.
+// Like the weights in GridKruskal, a bigger horizontal bias makes openings
+// between rows rarer and a bigger vertical bias makes openings between columns
+// rarer.
+class EllerRows {
+  private final int width;
+  private final SplittableRandom rand;
+  // the chance of joining two neighbors in different sets
+  private final double joinChance;
+  // the chance of a cell opening down, beyond the one each set needs
+  private final double downChance;
+  // the set of each column of the current row, which are all below width
+  private final int[] set;
+  // a union find over the sets, started over every row
+  private final int[] parent;
+  // the last column of the current row in each set
+  private final int[] lastColumn;
+  // has each set opened down yet?
+  private final boolean[] goesDown;
+  // is each set carried into the next row?
+  private final boolean[] used;
+  // the walls of the current row, laid out like a MazeGrid
+  private final long[] walls;
+  private int y;
+  private boolean finished;
+
+  EllerRows(int width, long seed, double vertBiasFactor, double horizBiasFactor) {
+    if (width < 1) {
+      throw new IllegalArgumentException("Maze must have at least one cell");
+    }
+    this.width = width;
+    this.rand = new SplittableRandom(seed);
+    // up edges are weighed by the horizontal bias and right edges by the
+    // vertical bias, so a heavier kind of edge is opened less often
+    double vert = Math.max(0, vertBiasFactor);
+    double horiz = Math.max(0, horizBiasFactor);
+    if (vert + horiz == 0) {
+      this.joinChance = 0.5;
+    } else {
+      this.joinChance = horiz / (vert + horiz);
+    }
+    this.downChance = 1 - this.joinChance;
+    this.set = new int[width];
+    this.parent = new int[width];
+    this.lastColumn = new int[width];
+    this.goesDown = new boolean[width];
+    this.used = new boolean[width];
+    this.walls = new long[(2 * width + 63) / 64];
+    this.y = 0;
+    this.finished = false;
+
+    // every cell of the first row starts in a set of its own
+    for (int x = 0; x < width; x += 1) {
+      this.set[x] = x;
+    }
+  }
+
+  // returns the number of rows handed to sinks so far
+  int rows() {
+    return this.y;
+  }
+
+  // To determine if the last row has been made
+  boolean isFinished() {
+    return this.finished;
+  }
+
+  // to make a whole maze of the given height
+  // EFFECT: hands every row to the sink in order
+  void generate(int height, IRowSink sink) {
+    if (height < 1) {
+      throw new IllegalArgumentException("Maze must have at least one cell");
+    }
+    for (int row = 1; row < height; row += 1) {
+      this.nextRow(sink);
+    }
+    this.lastRow(sink);
+  }
+
+  // to make the next row, with more to come after it
+  // EFFECT: hands the row to the sink and sets up the sets of the row below
+  void nextRow(IRowSink sink) {
+    this.makeRow(sink, false);
+  }
+
+  // to make the last row, joining every set that is left
+  // EFFECT: hands the row to the sink, after which no more rows can be made
+  void lastRow(IRowSink sink) {
+    this.makeRow(sink, true);
+  }
+
+  // to make the current row
+  // EFFECT: hands the row to the sink, and unless it is the last, carries the
+  // sets that opened down into the next row
+  private void makeRow(IRowSink sink, boolean last) {
+    if (this.finished) {
+      throw new IllegalStateException("The last row has already been made");
+    }
+    Arrays.fill(this.walls, -1L);
+    for (int label = 0; label < this.width; label += 1) {
+      this.parent[label] = label;
+      this.goesDown[label] = false;
+    }
+
+    // join neighbors, always on the last row so the maze is connected
+    for (int x = 0; x < this.width - 1; x += 1) {
+      int left = this.find(this.set[x]);
+      int right = this.find(this.set[x + 1]);
+      if (left != right && (last || this.rand.nextDouble() < this.joinChance)) {
+        this.parent[left] = right;
+        this.walls[(2 * x) >>> 6] &= ~(1L << (2 * x));
+      }
+    }
+    for (int x = 0; x < this.width; x += 1) {
+      this.set[x] = this.find(this.set[x]);
+      this.lastColumn[this.set[x]] = x;
+    }
+
+    // open down from every set at least once
+    if (!last) {
+      for (int x = 0; x < this.width; x += 1) {
+        int label = this.set[x];
+        if (this.rand.nextDouble() < this.downChance
+            || (x == this.lastColumn[label] && !this.goesDown[label])) {
+          this.walls[(2 * x + 1) >>> 6] &= ~(1L << (2 * x + 1));
+          this.goesDown[label] = true;
+        }
+      }
+    }
+
+    sink.acceptRow(this.y, this.walls);
+    this.y += 1;
+    if (last) {
+      this.finished = true;
+      return;
+    }
+
+    // cells below a wall start new sets, using labels no carried set has
+    Arrays.fill(this.used, false);
+    for (int x = 0; x < this.width; x += 1) {
+      if (this.opensDown(x)) {
+        this.used[this.set[x]] = true;
+      }
+    }
+    int free = 0;
+    for (int x = 0; x < this.width; x += 1) {
+      if (!this.opensDown(x)) {
+        while (this.used[free]) {
+          free += 1;
+        }
+        this.set[x] = free;
+        this.used[free] = true;
+      }
+    }
+  }
+
+  // is the down wall of the given column of the current row down?
+  private boolean opensDown(int x) {
+    return (this.walls[(2 * x + 1) >>> 6] & (1L << (2 * x + 1))) == 0;
+  }
+
+  // returns the set the given set has been joined into this row
+  // EFFECT: shortens the path to it
+  private int find(int label) {
+    while (this.parent[label] != label) {
+      this.parent[label] = this.parent[this.parent[label]];
+      label = this.parent[label];
+    }
+    return label;
+  }
+}
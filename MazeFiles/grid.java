@@ -0,0 +1,1854 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Represents a rectangular maze stored as a bitset of walls instead of linked
+// Cell and Edge objects, so that mazes far bigger than the window can be
+// generated, solved and turned into heatmaps.
+// Cells are numbered y * width + x. Each cell owns two bits, its right wall
+// (bit 2 * cell) and its down wall (bit 2 * cell + 1). The walls around the
+// outside of the maze are always up and take no storage.
+//
+// Memory budget per cell, for a maze of n cells:
+//   MazeGrid walls ........................ 2 bits (n / 4 bytes)
+//   GridKruskal, while generating ......... 8 bytes of edge order
+//                                           + 5 bytes of union find
+//   GridSearch, while solving ............. 8 bytes (distance + queue)
+//   GridState, for drawing and animating .. 7 bytes (visited from either
+//                                           end, highlighted
+//                                           + previouslyAccessed)
+// so a 10,000 x 10,000 maze peaks at about 1.3 GB while generating, and keeps
+// 25 MB once the generator has been dropped.
+class MazeGrid {
+  // the directions a wall can face
+  static final int UP = 0;
+  static final int DOWN = 1;
+  static final int LEFT = 2;
+  static final int RIGHT = 3;
+
+  // the most cells a grid can hold, so that every edge of the maze can be
+  // numbered with an int
+  static final int MAX_CELLS = 1 << 30;
+
+  // lets generators on many threads clear bits of the same word of walls
+  private static final VarHandle WALL_WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private final int width;
+  private final int height;
+  // two bits per cell, set when that wall is up
+  private final long[] walls;
+  // counts the changes to the walls, moved on lazily by version()
+  private int version;
+  // have the walls changed since version() was last asked
+  private boolean changed;
+
+  MazeGrid(int width, int height) {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Maze must have at least one cell");
+    }
+    if ((long) width * height > MAX_CELLS) {
+      throw new IllegalArgumentException("Maze is too big no goood");
+    }
+    this.width = width;
+    this.height = height;
+    this.walls = new long[(int) (((long) width * height * 2 + 63) / 64)];
+    Arrays.fill(this.walls, -1L);
+  }
+
+  // returns the number of columns in the maze
+  int width() {
+    return this.width;
+  }
+
+  // returns the number of rows in the maze
+  int height() {
+    return this.height;
+  }
+
+  // returns the number of cells in the maze
+  int size() {
+    return this.width * this.height;
+  }
+
+  // returns the index of the cell at the given column and row
+  int index(int x, int y) {
+    return y * this.width + x;
+  }
+
+  // returns the column of the given cell
+  int x(int cell) {
+    return cell % this.width;
+  }
+
+  // returns the row of the given cell
+  int y(int cell) {
+    return cell / this.width;
+  }
+
+  // returns the cell next to the given cell in the given direction, or -1 if
+  // that would be outside of the maze. Walls are not considered.
+  int neighbor(int cell, int direction) {
+    if (direction == UP) {
+      return cell < this.width ? -1 : cell - this.width;
+    } else if (direction == DOWN) {
+      return cell >= this.size() - this.width ? -1 : cell + this.width;
+    } else if (direction == LEFT) {
+      return cell % this.width == 0 ? -1 : cell - 1;
+    } else {
+      return cell % this.width == this.width - 1 ? -1 : cell + 1;
+    }
+  }
+
+  // returns the wall bit between the given cell and its neighbor in the given
+  // direction, or -1 for the outside of the maze
+  int wallBit(int cell, int direction) {
+    int other = this.neighbor(cell, direction);
+    if (other == -1) {
+      return -1;
+    } else if (direction == UP) {
+      return 2 * other + 1;
+    } else if (direction == DOWN) {
+      return 2 * cell + 1;
+    } else if (direction == LEFT) {
+      return 2 * other;
+    } else {
+      return 2 * cell;
+    }
+  }
+
+  // can you move from the given cell in the given direction?
+  boolean isOpen(int cell, int direction) {
+    int bit = this.wallBit(cell, direction);
+    return bit != -1 && !this.isWallBitSet(bit);
+  }
+
+  // is the wall with the given bit up?
+  boolean isWallBitSet(int bit) {
+    return (this.walls[bit >>> 6] & (1L << bit)) != 0;
+  }
+
+  // to knock down the wall with the given bit
+  // EFFECT: clears that bit of the walls
+  void breakWallBit(int bit) {
+    this.walls[bit >>> 6] &= ~(1L << bit);
+    this.change();
+  }
+
+  // to knock down the wall with the given bit, safe to call from many threads
+  // at once even when their walls share a word
+  // EFFECT: atomically clears that bit of the walls
+  void breakWallBitConcurrently(int bit) {
+    WALL_WORDS.getAndBitwiseAnd(this.walls, bit >>> 6, ~(1L << bit));
+    this.change();
+  }
+
+  // to put the wall with the given bit back up
+  // EFFECT: sets that bit of the walls
+  void buildWallBit(int bit) {
+    this.walls[bit >>> 6] |= 1L << bit;
+    this.change();
+  }
+
+  // to put the wall with the given bit back up, safe to call from many
+  // threads at once even when their walls share a word
+  // EFFECT: atomically sets that bit of the walls
+  void buildWallBitConcurrently(int bit) {
+    WALL_WORDS.getAndBitwiseOr(this.walls, bit >>> 6, 1L << bit);
+    this.change();
+  }
+
+  // to knock down every wall inside the maze, leaving one open room
+  // EFFECT: clears every bit of the walls except the ones along the outside
+  void openAllWalls() {
+    Arrays.fill(this.walls, 0L);
+    for (int y = 0; y < this.height; y += 1) {
+      int bit = 2 * this.index(this.width - 1, y);
+      this.walls[bit >>> 6] |= 1L << bit;
+    }
+    for (int x = 0; x < this.width; x += 1) {
+      int bit = 2 * this.index(x, this.height - 1) + 1;
+      this.walls[bit >>> 6] |= 1L << bit;
+    }
+    this.change();
+  }
+
+  // returns a new grid with the same walls as this one
+  MazeGrid copy() {
+    MazeGrid copy = new MazeGrid(this.width, this.height);
+    System.arraycopy(this.walls, 0, copy.walls, 0, this.walls.length);
+    return copy;
+  }
+
+  // to knock down up to 64 walls with neighboring bits at once, bit i of open
+  // standing for the wall with bit firstBit + i, safe to call from many
+  // threads at once even when their walls share a word
+  // EFFECT: atomically clears those bits of the walls
+  void breakWallRunConcurrently(int firstBit, long open) {
+    int word = firstBit >>> 6;
+    int shift = firstBit & 63;
+    WALL_WORDS.getAndBitwiseAnd(this.walls, word, ~(open << shift));
+    if (shift != 0 && (open >>> (64 - shift)) != 0) {
+      WALL_WORDS.getAndBitwiseAnd(this.walls, word + 1, ~(open >>> (64 - shift)));
+    }
+    this.change();
+  }
+
+  // to remember that the walls have changed. Only the first change since
+  // version() was asked writes the flag, so threads breaking walls at once
+  // just read it afterwards rather than fighting over it, and it is seen once
+  // the pool they run on has joined
+  // EFFECT: sets changed
+  private void change() {
+    if (!this.changed) {
+      this.changed = true;
+    }
+  }
+
+  // returns a number that stays the same for as long as the walls do, so
+  // anything worked out from the walls can be kept until it moves on
+  int version() {
+    if (this.changed) {
+      this.changed = false;
+      this.version += 1;
+    }
+    return this.version;
+  }
+
+  // to knock down the wall between the given cell and its neighbor in the
+  // given direction, the outside of the maze can't be broken
+  // EFFECT: clears that wall's bit
+  void breakWall(int cell, int direction) {
+    int bit = this.wallBit(cell, direction);
+    if (bit != -1) {
+      this.breakWallBit(bit);
+    }
+  }
+
+  // to put the wall between the given cell and its neighbor in the given
+  // direction back up
+  // EFFECT: sets that wall's bit
+  void buildWall(int cell, int direction) {
+    int bit = this.wallBit(cell, direction);
+    if (bit != -1) {
+      this.buildWallBit(bit);
+    }
+  }
+
+  // returns the cell you reach by moving from the given cell in the given
+  // direction, or the given cell if there is a wall in the way
+  int move(int cell, int direction) {
+    if (this.isOpen(cell, direction)) {
+      return this.neighbor(cell, direction);
+    }
+    return cell;
+  }
+
+  // returns how many edges there are between cells, which are numbered in the
+  // order Utils.createEdges creates them: row by row, and for each cell its up
+  // edge followed by its right edge
+  int edgeCount() {
+    return (this.width - 1) * this.height + this.width * (this.height - 1);
+  }
+
+  // returns the wall bit of the edge with the given creation number
+  int edgeBit(int edge) {
+    // the first row only has right edges
+    if (edge < this.width - 1) {
+      return 2 * edge;
+    }
+    edge -= this.width - 1;
+    // every later row has an up edge for every cell and a right edge for all
+    // but the last cell, alternating up then right
+    int perRow = 2 * this.width - 1;
+    int y = edge / perRow + 1;
+    int inRow = edge % perRow;
+    int cell = this.index(inRow / 2, y);
+    if (inRow % 2 == 0) {
+      return 2 * (cell - this.width) + 1;
+    }
+    return 2 * cell;
+  }
+
+  // returns the creation number of the edge with the given wall bit, the
+  // inverse of edgeBit
+  int bitEdge(int bit) {
+    int cell = bit >>> 1;
+    int x = this.x(cell);
+    int y = this.y(cell);
+    // a down wall is the up edge of the cell below it
+    if ((bit & 1) == 1) {
+      return (this.width - 1) + y * (2 * this.width - 1) + 2 * x;
+    } else if (y == 0) {
+      return x;
+    }
+    return (this.width - 1) + (y - 1) * (2 * this.width - 1) + 2 * x + 1;
+  }
+
+  // returns the first cell that the edge with the given wall bit joins
+  int bitCell1(int bit) {
+    return bit >>> 1;
+  }
+
+  // returns the second cell that the edge with the given wall bit joins
+  int bitCell2(int bit) {
+    if ((bit & 1) == 0) {
+      return (bit >>> 1) + 1;
+    }
+    return (bit >>> 1) + this.width;
+  }
+}
+
+// Represents where a grid generator gets the weight of each edge from
+interface IEdgeWeights {
+  // returns the weight of the edge of the given grid with the given creation
+  // number
+  int weight(MazeGrid grid, int edge);
+
+  // can weights be asked for in any order, from many threads at once? If not,
+  // they must be asked for in creation order, starting from edge 0.
+  boolean isRandomAccess();
+
+  // returns a weight no heavier than any this source gives
+  int lightest();
+
+  // returns a weight no lighter than any this source gives
+  int heaviest();
+}
+
+// The weights Utils.createEdges makes: r.nextInt(1000) from one
+// java.util.Random(seed) in creation order, up edges scaled by the
+// horizontal bias and right edges by the vertical bias. Kept so a seed
+// gives the same maze as the Cell and Edge version.
+class RandomWeights implements IEdgeWeights {
+  private final long seed;
+  private final double vertBiasFactor;
+  private final double horizBiasFactor;
+  private Random r;
+  // the edge expected next
+  private int next;
+
+  RandomWeights(long seed, double vertBiasFactor, double horizBiasFactor) {
+    this.seed = seed;
+    this.vertBiasFactor = vertBiasFactor;
+    this.horizBiasFactor = horizBiasFactor;
+    this.next = 0;
+  }
+
+  // returns the next weight drawn from the seed, starting over at edge 0
+  // EFFECT: advances the Random
+  public int weight(MazeGrid grid, int edge) {
+    if (edge == 0) {
+      this.r = new Random(this.seed);
+      this.next = 0;
+    }
+    if (edge != this.next) {
+      throw new IllegalStateException("Random weights must be drawn in creation order");
+    }
+    this.next += 1;
+    // up edges are stored as the down walls of the cells above them
+    if ((grid.edgeBit(edge) & 1) == 1) {
+      return (int) (this.r.nextInt(1000) * this.horizBiasFactor);
+    }
+    return (int) (this.r.nextInt(1000) * this.vertBiasFactor);
+  }
+
+  // one Random can only be drawn from in order
+  public boolean isRandomAccess() {
+    return false;
+  }
+
+  // returns the lightest possible weight, 0 or 999 times a negative bias
+  public int lightest() {
+    return Math.min(0, Math.min((int) (999 * this.vertBiasFactor),
+        (int) (999 * this.horizBiasFactor)));
+  }
+
+  // returns the heaviest possible weight, 999 times the bigger bias
+  public int heaviest() {
+    return Math.max(0, Math.max((int) (999 * this.vertBiasFactor),
+        (int) (999 * this.horizBiasFactor)));
+  }
+}
+
+// Counter-based weights: the weight of every edge is a pure function of the
+// seed, the edge's cell and direction, and the bias, so edges can be weighed
+// in any order, on any thread, and weighed again later without being stored.
+// Each edge gets a unique counter from its cell and direction, and its raw
+// value is the SplitMix64 output for that counter, scaled into 0 ... 999 like
+// r.nextInt(1000).
+class HashedWeights implements IEdgeWeights {
+  private final long seed;
+  private final double vertBiasFactor;
+  private final double horizBiasFactor;
+
+  HashedWeights(long seed, double vertBiasFactor, double horizBiasFactor) {
+    this.seed = seed;
+    this.vertBiasFactor = vertBiasFactor;
+    this.horizBiasFactor = horizBiasFactor;
+  }
+
+  // returns the weight of the edge with the given creation number
+  public int weight(MazeGrid grid, int edge) {
+    int bit = grid.edgeBit(edge);
+    int cell = grid.bitCell1(bit);
+    // up edges are stored as the down walls of the cells above them
+    if ((bit & 1) == 1) {
+      return this.weight(grid.x(cell), grid.y(cell) + 1, MazeGrid.UP);
+    }
+    return this.weight(grid.x(cell), grid.y(cell), MazeGrid.RIGHT);
+  }
+
+  // returns the weight of the up or right edge of the cell at x, y
+  int weight(int x, int y, int direction) {
+    long counter = ((((long) y << 32) | x) << 1) | (direction == MazeGrid.UP ? 0 : 1);
+    long raw = hash(this.seed, counter);
+    int value = (int) (((raw >>> 32) * 1000) >>> 32);
+    if (direction == MazeGrid.UP) {
+      return (int) (value * this.horizBiasFactor);
+    }
+    return (int) (value * this.vertBiasFactor);
+  }
+
+  // returns 64 random bits for the given seed and counter, the same every
+  // time, with every counter looking unrelated to its neighbors
+  static long hash(long seed, long counter) {
+    return mix(seed + (counter + 1) * 0x9E3779B97F4A7C15L);
+  }
+
+  // returns the SplitMix64 finalizer of the given value, which spreads every
+  // bit of the input over the whole output
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  // any edge can be weighed at any time
+  public boolean isRandomAccess() {
+    return true;
+  }
+
+  // returns the lightest possible weight, 0 or 999 times a negative bias
+  public int lightest() {
+    return Math.min(0, Math.min((int) (999 * this.vertBiasFactor),
+        (int) (999 * this.horizBiasFactor)));
+  }
+
+  // returns the heaviest possible weight, 999 times the bigger bias
+  public int heaviest() {
+    return Math.max(0, Math.max((int) (999 * this.vertBiasFactor),
+        (int) (999 * this.horizBiasFactor)));
+  }
+}
+
+// Weights read once, in creation order, from another source and stored, so
+// that a source like RandomWeights can be used where any order is needed
+class StoredWeights implements IEdgeWeights {
+  private final int[] weights;
+  private final int lightest;
+  private final int heaviest;
+
+  StoredWeights(MazeGrid grid, IEdgeWeights source) {
+    this.weights = new int[grid.edgeCount()];
+    for (int edge = 0; edge < this.weights.length; edge += 1) {
+      this.weights[edge] = source.weight(grid, edge);
+    }
+    this.lightest = source.lightest();
+    this.heaviest = source.heaviest();
+  }
+
+  // returns the stored weight of the given edge
+  public int weight(MazeGrid grid, int edge) {
+    return this.weights[edge];
+  }
+
+  // stored weights can be read in any order
+  public boolean isRandomAccess() {
+    return true;
+  }
+
+  // returns the lightest weight of the source
+  public int lightest() {
+    return this.lightest;
+  }
+
+  // returns the heaviest weight of the source
+  public int heaviest() {
+    return this.heaviest;
+  }
+}
+
+// Generates a MazeGrid with Kruskal's algorithm without allocating an object
+// per edge. Given RandomWeights, a seed gives the same maze as the Cell and
+// Edge version.
+class GridKruskal implements IAnimationHelper {
+  private final MazeGrid grid;
+  // edge creation numbers, lightest first, with ties kept in creation order
+  // like the stable sort in KruskalsUnionFind
+  private final int[] order;
+  private final IntUnionFind representatives;
+  private int index;
+
+  GridKruskal(MazeGrid grid, int seed, double vertBiasFactor,
+      double horizBiasFactor) {
+    this(grid, new RandomWeights(seed, vertBiasFactor, horizBiasFactor));
+  }
+
+  GridKruskal(MazeGrid grid, IEdgeWeights weights) {
+    this.grid = grid;
+    this.representatives = new IntUnionFind(grid.size());
+    this.index = 0;
+
+    int lightest = weights.lightest();
+    int heaviest = weights.heaviest();
+    if ((long) heaviest - lightest < EdgeOrder.MAX_COUNTING_RANGE) {
+      // a counting sort that asks for the weights twice rather than storing
+      // them, first to count them and then to place each edge
+      int[] order = new int[grid.edgeCount()];
+      int[] starts = new int[heaviest - lightest + 2];
+      for (int edge = 0; edge < order.length; edge += 1) {
+        starts[weights.weight(grid, edge) - lightest + 1] += 1;
+      }
+      for (int i = 1; i < starts.length; i += 1) {
+        starts[i] += starts[i - 1];
+      }
+      for (int edge = 0; edge < order.length; edge += 1) {
+        int w = weights.weight(grid, edge) - lightest;
+        order[starts[w]] = edge;
+        starts[w] += 1;
+      }
+      this.order = order;
+    } else {
+      int[] stored = new int[grid.edgeCount()];
+      for (int edge = 0; edge < stored.length; edge += 1) {
+        stored[edge] = weights.weight(grid, edge);
+      }
+      this.order = new EdgeOrder().sort(stored);
+    }
+  }
+
+  // To determine if the maze is finished generating, either every edge has been
+  // tried or the cells already form a single spanning tree
+  public boolean isFinished() {
+    return this.order.length <= this.index
+        || this.representatives.unions() >= this.grid.size() - 1;
+  }
+
+  // To try the next lightest edge
+  // EFFECT: breaks the edge's wall if its two cells are not connected yet,
+  // and unionizes them
+  public void iterate() {
+    if (!this.isFinished()) {
+      int bit = this.grid.edgeBit(this.order[this.index]);
+      if (this.representatives.union(this.grid.bitCell1(bit), this.grid.bitCell2(bit))) {
+        this.grid.breakWallBit(bit);
+      }
+      this.index += 1;
+    }
+  }
+}
+
+// Breadth first searches over a MazeGrid, keeping all of its state in
+// primitive arrays so that it can run on mazes of any size
+class GridSearch {
+  private final MazeGrid grid;
+  // distance of each cell from the last origin, -1 if it wasn't reached
+  private final int[] distance;
+  private final int[] queue;
+  private int origin;
+
+  GridSearch(MazeGrid grid) {
+    this.grid = grid;
+    this.distance = new int[grid.size()];
+    this.queue = new int[grid.size()];
+    this.origin = -1;
+  }
+
+  // to find the distance of every cell from the given origin, returning the
+  // furthest distance, which is what a heatmap is scaled by
+  // EFFECT: overwrites the distance of every cell
+  int distancesFrom(int origin) {
+    Arrays.fill(this.distance, -1);
+    this.origin = origin;
+    this.distance[origin] = 0;
+    this.queue[0] = origin;
+    int head = 0;
+    int tail = 1;
+    int furthest = 0;
+
+    while (head < tail) {
+      int cell = this.queue[head];
+      head += 1;
+      int next = this.distance[cell] + 1;
+      for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+        if (this.grid.isOpen(cell, dir)) {
+          int neighbor = this.grid.neighbor(cell, dir);
+          if (this.distance[neighbor] == -1) {
+            this.distance[neighbor] = next;
+            furthest = next;
+            this.queue[tail] = neighbor;
+            tail += 1;
+          }
+        }
+      }
+    }
+    return furthest;
+  }
+
+  // returns the distance of the given cell from the last origin, or -1 if it
+  // can't be reached
+  int distanceTo(int cell) {
+    return this.distance[cell];
+  }
+
+  // returns the cell the given cell is reached from, the first neighbor in
+  // direction order that is one step closer to the last origin, or -1 for the
+  // origin and cells that can't be reached
+  int parent(int cell) {
+    if (this.distance[cell] > 0) {
+      for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+        if (this.grid.isOpen(cell, dir)
+            && this.distance[this.grid.neighbor(cell, dir)] == this.distance[cell] - 1) {
+          return this.grid.neighbor(cell, dir);
+        }
+      }
+    }
+    return -1;
+  }
+
+  // returns the cells on a shortest path from the last origin to the given
+  // goal, in order, or an empty array if the goal can't be reached. The path
+  // is found by walking downhill through the distances, so no parent array
+  // is needed.
+  int[] pathTo(int goal) {
+    if (this.origin == -1 || this.distance[goal] == -1) {
+      return new int[0];
+    }
+    int[] path = new int[this.distance[goal] + 1];
+    int cell = goal;
+    for (int i = path.length - 1; i > 0; i -= 1) {
+      path[i] = cell;
+      cell = this.parent(cell);
+    }
+    path[0] = this.origin;
+    return path;
+  }
+}
+
+// Breadth first searches over a MazeGrid a level at a time, spreading each
+// level over the threads of a ForkJoinPool. While the frontier is small next
+// to the cells left, which in a maze is most levels, it is a list of cells
+// and each one claims its unreached neighbors. Once the frontier grows to a
+// big share of the maze, it becomes a bitset and every unreached cell looks
+// for a neighbor in it instead, each task owning its own words of the next
+// frontier, and it goes back to a list when the frontier shrinks again. The
+// distances, and so the parents picked from them the same way as GridSearch,
+// come out the same as a GridSearch from the same origin.
+class ParallelGridSearch {
+  // the fewest cells of a frontier, or words of a bitset, one task expands
+  static final int GRAIN = 1 << 12;
+  // search from the frontier while it holds fewer than one in this many of
+  // the cells left
+  static final int BOTTOM_UP = 14;
+  // search from the cells left until the frontier holds fewer than one in
+  // this many of all the cells, and never start to with a frontier that small
+  static final int TOP_DOWN = 24;
+
+  // lets many threads claim cells of the same distances
+  private static final VarHandle DISTANCES = MethodHandles.arrayElementVarHandle(int[].class);
+
+  private final MazeGrid grid;
+  private final ForkJoinPool pool;
+  private final int grain;
+  // distance of each cell from the last origin, -1 if it wasn't reached
+  private final int[] distance;
+  // the frontier and the next frontier as lists of cells
+  private int[] frontier;
+  private int[] next;
+  private final AtomicInteger nextSize;
+  // the frontier and the next frontier as bitsets
+  private long[] frontierBits;
+  private long[] nextBits;
+  // the distance of the cells in the next frontier
+  private int level;
+  // is the step being run in the calling thread alone
+  private boolean alone;
+  // the number of levels the last search expanded from the cells left
+  private int bottomUpLevels;
+
+  // searches on every core of the common ForkJoinPool
+  ParallelGridSearch(MazeGrid grid) {
+    this(grid, ForkJoinPool.commonPool(), GRAIN);
+  }
+
+  // searches on the threads of the given pool, with no task expanding fewer
+  // than grain cells or words
+  ParallelGridSearch(MazeGrid grid, ForkJoinPool pool, int grain) {
+    if (grain < 1) {
+      throw new IllegalArgumentException("Grain must be at least one");
+    }
+    this.grid = grid;
+    this.pool = pool;
+    this.grain = grain;
+    this.distance = new int[grid.size()];
+    this.frontier = new int[grid.size()];
+    this.next = new int[grid.size()];
+    this.nextSize = new AtomicInteger();
+    this.frontierBits = new long[(grid.size() + 63) / 64];
+    this.nextBits = new long[this.frontierBits.length];
+  }
+
+  // to find the distance of every cell from the given origin, returning the
+  // furthest distance
+  // EFFECT: overwrites the distance of every cell
+  int distancesFrom(int origin) {
+    Arrays.fill(this.distance, -1);
+    this.distance[origin] = 0;
+    this.frontier[0] = origin;
+    int frontierSize = 1;
+    int lastSize = 0;
+    int left = this.grid.size() - 1;
+    boolean bottomUp = false;
+    this.level = 0;
+    this.bottomUpLevels = 0;
+
+    while (frontierSize > 0) {
+      this.level += 1;
+      // only a frontier that is big in its own right, and still growing, is
+      // worth a scan of the whole maze, otherwise the few cells left at the
+      // end of a search would flip it back and forth every level
+      if (!bottomUp && (long) frontierSize * BOTTOM_UP > left
+          && (long) frontierSize * TOP_DOWN >= this.grid.size() && frontierSize > lastSize) {
+        bottomUp = true;
+        Arrays.fill(this.frontierBits, 0L);
+        for (int i = 0; i < frontierSize; i += 1) {
+          this.frontierBits[this.frontier[i] >>> 6] |= 1L << this.frontier[i];
+        }
+      } else if (bottomUp && (long) frontierSize * TOP_DOWN < this.grid.size()) {
+        bottomUp = false;
+        frontierSize = 0;
+        for (int word = 0; word < this.frontierBits.length; word += 1) {
+          for (long bits = this.frontierBits[word]; bits != 0; bits &= bits - 1) {
+            this.frontier[frontierSize] = 64 * word + Long.numberOfTrailingZeros(bits);
+            frontierSize += 1;
+          }
+        }
+      }
+
+      this.nextSize.set(0);
+      lastSize = frontierSize;
+      if (bottomUp) {
+        this.bottomUpLevels += 1;
+        this.run(FrontierAction.BOTTOM_UP, this.frontierBits.length);
+        long[] bits = this.frontierBits;
+        this.frontierBits = this.nextBits;
+        this.nextBits = bits;
+      } else {
+        this.run(FrontierAction.TOP_DOWN, frontierSize);
+        int[] cells = this.frontier;
+        this.frontier = this.next;
+        this.next = cells;
+      }
+      frontierSize = this.nextSize.get();
+      left -= frontierSize;
+    }
+
+    // the last level searched found nothing
+    return this.level - 1;
+  }
+
+  // returns the number of levels the last search found by looking at every
+  // cell left rather than out from the frontier
+  int bottomUpLevels() {
+    return this.bottomUpLevels;
+  }
+
+  // to run the given step over the indices 0 ... count - 1, in the calling
+  // thread when there are too few to split
+  // EFFECT: runs the step
+  private void run(int step, int count) {
+    FrontierAction action = new FrontierAction(this, step, 0, count, this.grain);
+    this.alone = count <= this.grain;
+    if (this.alone) {
+      action.computeRange(0, count);
+    } else {
+      this.pool.invoke(action);
+    }
+  }
+
+  // to claim the unreached neighbors of the frontier cells lo ... hi - 1
+  // EFFECT: sets their distances and adds them to the next frontier
+  void expandTopDown(int lo, int hi) {
+    if (this.alone) {
+      this.expandTopDownAlone(lo, hi);
+      return;
+    }
+    int[] found = new int[4 * (hi - lo)];
+    int count = 0;
+    for (int i = lo; i < hi; i += 1) {
+      int cell = this.frontier[i];
+      for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+        if (this.grid.isOpen(cell, dir)) {
+          int neighbor = this.grid.neighbor(cell, dir);
+          if (this.distance[neighbor] == -1
+              && DISTANCES.compareAndSet(this.distance, neighbor, -1, this.level)) {
+            found[count] = neighbor;
+            count += 1;
+          }
+        }
+      }
+    }
+    System.arraycopy(found, 0, this.next, this.nextSize.getAndAdd(count), count);
+  }
+
+  // to claim the unreached neighbors of the frontier cells lo ... hi - 1
+  // with no other thread searching, so without claiming them atomically
+  // EFFECT: sets their distances and adds them to the next frontier
+  private void expandTopDownAlone(int lo, int hi) {
+    int count = this.nextSize.get();
+    for (int i = lo; i < hi; i += 1) {
+      int cell = this.frontier[i];
+      for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+        if (this.grid.isOpen(cell, dir)) {
+          int neighbor = this.grid.neighbor(cell, dir);
+          if (this.distance[neighbor] == -1) {
+            this.distance[neighbor] = this.level;
+            this.next[count] = neighbor;
+            count += 1;
+          }
+        }
+      }
+    }
+    this.nextSize.set(count);
+  }
+
+  // to find the unreached cells in the words lo ... hi - 1 that have a
+  // neighbor in the frontier
+  // EFFECT: sets their distances and writes those words of the next frontier
+  void expandBottomUp(int lo, int hi) {
+    int count = 0;
+    for (int word = lo; word < hi; word += 1) {
+      long bits = 0L;
+      int end = Math.min(this.grid.size(), 64 * word + 64);
+      for (int cell = 64 * word; cell < end; cell += 1) {
+        if (this.distance[cell] == -1) {
+          for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+            if (this.grid.isOpen(cell, dir)) {
+              int neighbor = this.grid.neighbor(cell, dir);
+              if ((this.frontierBits[neighbor >>> 6] & (1L << neighbor)) != 0) {
+                this.distance[cell] = this.level;
+                bits |= 1L << cell;
+                count += 1;
+                break;
+              }
+            }
+          }
+        }
+      }
+      this.nextBits[word] = bits;
+    }
+    this.nextSize.getAndAdd(count);
+  }
+
+  // returns the distance of the given cell from the last origin, or -1 if it
+  // can't be reached
+  int distanceTo(int cell) {
+    return this.distance[cell];
+  }
+
+  // returns the cell the given cell is reached from, the first neighbor in
+  // direction order that is one step closer to the last origin, or -1 for the
+  // origin and cells that can't be reached
+  int parent(int cell) {
+    if (this.distance[cell] > 0) {
+      for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+        if (this.grid.isOpen(cell, dir)
+            && this.distance[this.grid.neighbor(cell, dir)] == this.distance[cell] - 1) {
+          return this.grid.neighbor(cell, dir);
+        }
+      }
+    }
+    return -1;
+  }
+}
+
+// represents a fork-join task doing one step of a ParallelGridSearch over
+// the indices lo ... hi - 1
+@SuppressWarnings("serial")
+class FrontierAction extends RangeAction {
+  // the steps, over frontier cells and over words of cells
+  static final int TOP_DOWN = 0;
+  static final int BOTTOM_UP = 1;
+
+  private final ParallelGridSearch search;
+  private final int step;
+
+  FrontierAction(ParallelGridSearch search, int step, int lo, int hi, int grain) {
+    super(lo, hi, grain);
+    this.search = search;
+    this.step = step;
+  }
+
+  // does the step for the indices lo ... hi - 1
+  void computeRange(int lo, int hi) {
+    if (this.step == TOP_DOWN) {
+      this.search.expandTopDown(lo, hi);
+    } else {
+      this.search.expandBottomUp(lo, hi);
+    }
+  }
+
+  // returns the same step over fewer indices
+  RangeAction split(int lo, int hi, int grain) {
+    return new FrontierAction(this.search, this.step, lo, hi, grain);
+  }
+}
+
+// Fills in the dead ends of a MazeGrid, sealing the wall in front of every
+// cell with only one way out, which can leave its neighbor with one way out
+// in turn. Each cell is queued at most once, when it becomes a dead end, so
+// the whole fill is linear in the size of the maze. The walls are built on a
+// copy of the maze, and the cells that are kept are never sealed, so on a
+// perfect maze what is left open is just the paths between them, which any
+// search can then walk without wading through the dead ends.
+class DeadEndFill implements IAnimationHelper {
+  // so many more open walls than any cell can have that a kept cell never
+  // counts down to a dead end, even with every one of its neighbors sealed
+  private static final byte KEPT = Byte.MAX_VALUE;
+
+  private final MazeGrid pruned;
+  // the state to mark sealed cells and the final path in, or null
+  private final GridState state;
+  private final int from;
+  private final int to;
+  // the number of open walls of each cell
+  private final byte[] degree;
+  // the dead ends waiting to be sealed
+  private final int[] queue;
+  private int head;
+  private int tail;
+  private boolean finished;
+
+  // fills the dead ends between the given start and target, marking each
+  // sealed cell as visited and highlighting the path once it is done
+  DeadEndFill(MazeGrid grid, GridState state, int from, int to) {
+    this(grid, state, new int[] { from, to }, from, to);
+  }
+
+  // fills the dead ends around the given cells, so that only the paths between
+  // them are left to search
+  DeadEndFill(MazeGrid grid, int[] keep) {
+    this(grid, null, keep, -1, -1);
+  }
+
+  private DeadEndFill(MazeGrid grid, GridState state, int[] keep, int from, int to) {
+    this.pruned = grid.copy();
+    this.state = state;
+    this.from = from;
+    this.to = to;
+    this.degree = new byte[grid.size()];
+    this.queue = new int[grid.size()];
+    for (int cell = 0; cell < grid.size(); cell += 1) {
+      for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+        if (grid.isOpen(cell, dir)) {
+          this.degree[cell] += 1;
+        }
+      }
+    }
+    for (int cell : keep) {
+      this.degree[cell] = KEPT;
+    }
+    for (int cell = 0; cell < grid.size(); cell += 1) {
+      if (this.degree[cell] == 1) {
+        this.queue[this.tail] = cell;
+        this.tail += 1;
+      }
+    }
+    this.finished = false;
+  }
+
+  // To seal the next dead end, used for animation
+  // EFFECT: builds the wall in front of the dead end in the pruned maze, marks
+  // it as visited, queues its neighbor if that became a dead end, and once
+  // there are none left highlights the path
+  public void iterate() {
+    if (this.isFinished()) {
+      return;
+    }
+    if (this.head < this.tail) {
+      int cell = this.queue[this.head];
+      this.head += 1;
+      for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+        if (this.pruned.isOpen(cell, dir)) {
+          int neighbor = this.pruned.neighbor(cell, dir);
+          this.pruned.buildWall(cell, dir);
+          this.degree[cell] -= 1;
+          this.degree[neighbor] -= 1;
+          if (this.degree[neighbor] == 1) {
+            this.queue[this.tail] = neighbor;
+            this.tail += 1;
+          }
+        }
+      }
+      if (this.state != null) {
+        this.state.visit(cell);
+      }
+    }
+    if (this.head == this.tail) {
+      this.finished = true;
+      if (this.state != null) {
+        GridSearch search = new GridSearch(this.pruned);
+        search.distancesFrom(this.from);
+        int[] path = search.pathTo(this.to);
+        for (int i = 1; i < path.length; i += 1) {
+          this.state.link(path[i], path[i - 1]);
+        }
+        if (path.length > 0) {
+          this.state.highlight(this.to);
+        }
+      }
+    }
+  }
+
+  // To fill every dead end at once, returning the pruned maze
+  // EFFECT: builds the walls in front of every dead end in the pruned maze
+  MazeGrid fill() {
+    while (!this.isFinished()) {
+      this.iterate();
+    }
+    return this.pruned;
+  }
+
+  // returns the copy of the maze the dead ends are sealed in
+  MazeGrid pruned() {
+    return this.pruned;
+  }
+
+  // returns how many cells have been sealed so far
+  int sealed() {
+    return this.head;
+  }
+
+  // To determine if there are no dead ends left to seal
+  public boolean isFinished() {
+    return this.finished;
+  }
+}
+
+// Answers distance and path queries between any two cells of a perfect maze
+// without searching. A perfect maze is a spanning tree, so the path between
+// two cells is the path up from each of them to their lowest common
+// ancestor. The tree is rooted at the top left cell and numbered in depth
+// first order, where the lowest common ancestor of two cells is the parent of
+// the shallowest cell numbered after the first of them and no later than the
+// second, found with a sparse table of range minimums in constant time.
+// Building it costs about 4 * log2(n) + 13 bytes per cell, after which a
+// distance takes O(1) and a path takes O(length of the path).
+class GridPathIndex {
+  private final MazeGrid grid;
+  // the direction of each cell's parent, OriginShift.ROOT for the root
+  private final byte[] parent;
+  // the number of steps from the root to each cell
+  private final int[] depth;
+  // the depth first number of each cell
+  private final int[] number;
+  // level j holds, for each number i, the shallowest cell numbered from i to
+  // i + 2^j - 1, so level 0 is the cells in depth first order
+  private final int[][] shallowest;
+
+  // the given maze must be a spanning tree
+  GridPathIndex(MazeGrid grid) {
+    int size = grid.size();
+    this.grid = grid;
+    this.parent = new byte[size];
+    this.depth = new int[size];
+    this.number = new int[size];
+    int[] order = new int[size];
+
+    // number the cells in depth first order, each subtree getting a run of
+    // numbers, with a stack instead of recursion so long corridors are safe
+    boolean[] seen = new boolean[size];
+    int[] stack = new int[size];
+    int top = 0;
+    stack[top] = 0;
+    top += 1;
+    seen[0] = true;
+    this.parent[0] = OriginShift.ROOT;
+    int reached = 0;
+    while (top > 0) {
+      top -= 1;
+      int cell = stack[top];
+      this.number[cell] = reached;
+      order[reached] = cell;
+      reached += 1;
+      for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+        if (grid.isOpen(cell, dir) && dir != this.parent[cell]) {
+          int next = grid.neighbor(cell, dir);
+          // a cell found twice means the maze has a loop
+          if (seen[next]) {
+            throw new IllegalArgumentException("Maze must be a spanning tree");
+          }
+          seen[next] = true;
+          // UP and DOWN, and LEFT and RIGHT, differ only in the lowest bit
+          this.parent[next] = (byte) (dir ^ 1);
+          this.depth[next] = this.depth[cell] + 1;
+          stack[top] = next;
+          top += 1;
+        }
+      }
+    }
+    if (reached != size) {
+      throw new IllegalArgumentException("Maze must be a spanning tree");
+    }
+
+    int levels = 1;
+    while ((1 << levels) <= size) {
+      levels += 1;
+    }
+    this.shallowest = new int[levels][];
+    this.shallowest[0] = order;
+    for (int j = 1; j < levels; j += 1) {
+      int[] below = this.shallowest[j - 1];
+      int[] level = new int[size - (1 << j) + 1];
+      int half = 1 << (j - 1);
+      for (int i = 0; i < level.length; i += 1) {
+        level[i] = this.shallower(below[i], below[i + half]);
+      }
+      this.shallowest[j] = level;
+    }
+  }
+
+  // returns whichever of the two cells is closer to the root
+  private int shallower(int cell1, int cell2) {
+    if (this.depth[cell2] < this.depth[cell1]) {
+      return cell2;
+    }
+    return cell1;
+  }
+
+  // returns the maze this indexes
+  MazeGrid grid() {
+    return this.grid;
+  }
+
+  // returns the parent of the given cell, or -1 for the root
+  int parent(int cell) {
+    if (this.parent[cell] == OriginShift.ROOT) {
+      return -1;
+    }
+    return this.grid.neighbor(cell, this.parent[cell]);
+  }
+
+  // returns the number of steps from the top left cell to the given cell
+  int depth(int cell) {
+    return this.depth[cell];
+  }
+
+  // returns the cell where the paths from the two cells to the root join
+  int ancestor(int cell1, int cell2) {
+    if (cell1 == cell2) {
+      return cell1;
+    }
+    int first = Math.min(this.number[cell1], this.number[cell2]) + 1;
+    int last = Math.max(this.number[cell1], this.number[cell2]);
+    int j = 31 - Integer.numberOfLeadingZeros(last - first + 1);
+    int cell = this.shallower(this.shallowest[j][first],
+        this.shallowest[j][last - (1 << j) + 1]);
+    return this.parent(cell);
+  }
+
+  // returns the number of steps on the path between the two cells
+  int distance(int cell1, int cell2) {
+    return this.depth[cell1] + this.depth[cell2]
+        - 2 * this.depth[this.ancestor(cell1, cell2)];
+  }
+
+  // returns the cells on the path from the first cell to the second, in order
+  int[] path(int from, int to) {
+    int ancestor = this.ancestor(from, to);
+    int up = this.depth[from] - this.depth[ancestor];
+    int[] path = new int[up + this.depth[to] - this.depth[ancestor] + 1];
+    int cell = from;
+    for (int i = 0; i < up; i += 1) {
+      path[i] = cell;
+      cell = this.parent(cell);
+    }
+    cell = to;
+    for (int i = path.length - 1; i > up; i -= 1) {
+      path[i] = cell;
+      cell = this.parent(cell);
+    }
+    path[up] = ancestor;
+    return path;
+  }
+
+  // to write the directions to move in to get from the first cell to the
+  // second into the given array, starting at the given offset, returning how
+  // many moves were written
+  // EFFECT: sets that many bytes of the moves
+  int moves(int from, int to, byte[] moves, int offset) {
+    int ancestor = this.ancestor(from, to);
+    int up = this.depth[from] - this.depth[ancestor];
+    int count = up + this.depth[to] - this.depth[ancestor];
+    int cell = from;
+    for (int i = 0; i < up; i += 1) {
+      moves[offset + i] = this.parent[cell];
+      cell = this.parent(cell);
+    }
+    // the path down to the goal is the path up from it, backwards
+    cell = to;
+    for (int i = count - 1; i >= up; i -= 1) {
+      moves[offset + i] = (byte) (this.parent[cell] ^ 1);
+      cell = this.parent(cell);
+    }
+    return count;
+  }
+}
+
+// Answers a batch of path queries over one perfect maze, sharing one
+// GridPathIndex between them and spreading them over the threads of a
+// ForkJoinPool. The queries come as pairs of cells, start then goal, and each
+// path is kept as the moves from its start, one byte per step, all packed
+// into one array: the distances are found first, which gives where each path
+// starts in the array, and then every path is written into its own slice.
+class GridPathBatch {
+  // the fewest queries one task answers before splitting
+  static final int GRAIN = 1 << 10;
+
+  private final GridPathIndex index;
+  // the start and goal of query i are at 2 * i and 2 * i + 1
+  private final int[] pairs;
+  private final int[] distance;
+  // the moves of query i are at offset[i] ... offset[i + 1] - 1
+  private final int[] offset;
+  private final byte[] moves;
+
+  // answers the queries on every core of the common ForkJoinPool
+  GridPathBatch(GridPathIndex index, int[] pairs) {
+    this(index, pairs, ForkJoinPool.commonPool());
+  }
+
+  // answers the queries on the threads of the given pool
+  GridPathBatch(GridPathIndex index, int[] pairs, ForkJoinPool pool) {
+    if (pairs.length % 2 != 0) {
+      throw new IllegalArgumentException("Every start must have a goal");
+    }
+    this.index = index;
+    this.pairs = pairs;
+    this.distance = new int[pairs.length / 2];
+    this.offset = new int[this.distance.length + 1];
+
+    pool.invoke(new PathQueryAction(this, false, 0, this.distance.length, GRAIN));
+    long total = 0;
+    for (int i = 0; i < this.distance.length; i += 1) {
+      this.offset[i] = (int) total;
+      total += this.distance[i];
+      if (total > Integer.MAX_VALUE - 8) {
+        throw new IllegalArgumentException("Paths are too long to keep together");
+      }
+    }
+    this.offset[this.distance.length] = (int) total;
+    this.moves = new byte[(int) total];
+    pool.invoke(new PathQueryAction(this, true, 0, this.distance.length, GRAIN));
+  }
+
+  // to find the length of the given query's path
+  // EFFECT: sets its distance
+  void measure(int query) {
+    this.distance[query] = this.index.distance(this.pairs[2 * query], this.pairs[2 * query + 1]);
+  }
+
+  // to write the moves of the given query's path
+  // EFFECT: fills its slice of the moves
+  void write(int query) {
+    this.index.moves(this.pairs[2 * query], this.pairs[2 * query + 1], this.moves,
+        this.offset[query]);
+  }
+
+  // returns the number of queries
+  int count() {
+    return this.distance.length;
+  }
+
+  // returns the number of steps between the start and goal of the given query
+  int distance(int query) {
+    return this.distance[query];
+  }
+
+  // returns the directions to move in, in order, to get from the start of the
+  // given query to its goal
+  byte[] moves(int query) {
+    return Arrays.copyOfRange(this.moves, this.offset[query], this.offset[query + 1]);
+  }
+
+  // returns the cells on the path of the given query, from its start to its
+  // goal
+  int[] path(int query) {
+    int[] path = new int[this.distance[query] + 1];
+    path[0] = this.pairs[2 * query];
+    for (int step = 0; step < this.distance[query]; step += 1) {
+      path[step + 1] = this.index.grid().neighbor(path[step],
+          this.moves[this.offset[query] + step]);
+    }
+    return path;
+  }
+}
+
+// represents a fork-join task answering the queries lo ... hi - 1 of a batch,
+// either finding their distances or writing their moves
+@SuppressWarnings("serial")
+class PathQueryAction extends RangeAction {
+  private final GridPathBatch batch;
+  private final boolean writing;
+
+  PathQueryAction(GridPathBatch batch, boolean writing, int lo, int hi, int grain) {
+    super(lo, hi, grain);
+    this.batch = batch;
+    this.writing = writing;
+  }
+
+  // measures or writes the queries lo ... hi - 1
+  void computeRange(int lo, int hi) {
+    for (int query = lo; query < hi; query += 1) {
+      if (this.writing) {
+        this.batch.write(query);
+      } else {
+        this.batch.measure(query);
+      }
+    }
+  }
+
+  // returns an action over fewer queries
+  RangeAction split(int lo, int hi, int grain) {
+    return new PathQueryAction(this.batch, this.writing, lo, hi, grain);
+  }
+}
+
+// Represents a MazeGrid with every corridor collapsed into one edge, so that
+// searches only stop at junctions, dead ends and any kept cells. The edges are
+// kept in compressed sparse rows: the edges leaving node i are at offsets[i]
+// ... offsets[i + 1] - 1 of targets, lengths and starts, and every corridor is
+// stored once from each end. The node of every cell is worked out once, as it
+// is built, so walking a corridor or joining a cell never searches for one. A
+// query can start or end at any cell: one in the middle of a corridor is
+// joined to the nodes at both ends of it when it is asked. The search state is
+// kept from one query to the next and emptied with epoch marks, so a query only
+// pays for the nodes it reaches. A path is expanded back into cells by walking
+// the corridors it uses from the direction each one leaves its node in.
+// When the graph has no loops, as for any perfect maze, the path between two
+// cells is the only one, so a depth first search finds it without a heap;
+// otherwise A* with the Manhattan distance finds a shortest one.
+// Building the graph costs about two breadth first searches of the whole maze,
+// so it only pays off for several queries against one maze. On 2000x2000
+// mazes a perfect maze's query then takes a tenth of a breadth first search or
+// less, but on a branchy maze with loops, where most cells are junctions or
+// dead ends anyway, A* over the nodes is slower than a plain breadth first
+// search over the cells.
+class JunctionGraph {
+  private final MazeGrid grid;
+  // marks a kept cell while the nodes are being counted
+  private static final int KEPT = -2;
+
+  // the node of each cell, -1 for a cell in the middle of a corridor
+  private final int[] nodeOf;
+  // the cell of each node, in order
+  private final int[] cells;
+  private final int[] offsets;
+  // the node at the other end of each edge
+  private final int[] targets;
+  // the number of steps along each edge
+  private final int[] lengths;
+  // the direction each edge leaves its node in
+  private final byte[] starts;
+  // does the graph have no loops, so that the path between two cells is the
+  // only one there is
+  private final boolean tree;
+
+  // the sides of a query
+  private static final int START = 0;
+  private static final int GOAL = 1;
+
+  // the nodes to expand, keyed by (distance + estimate) << 32 | estimate
+  private final IndexedLongHeap open;
+  // the distance of each node from the start, and the edge it was reached
+  // through, or -1 - join for a node the start joins, which only count once
+  // the node is reached
+  private final int[] distance;
+  private final int[] through;
+  // the nodes waiting to be expanded when the graph is a tree
+  private final int[] stack;
+  private final EpochMarks reached;
+  private final EpochMarks closed;
+  // where the start (joins 0 and 1) and goal (joins 2 and 3) of the last
+  // query join the graph: the node, the steps to it and the direction of
+  // the first step towards it
+  private final int[] joinNode;
+  private final int[] joinLength;
+  private final byte[] joinDir;
+  private final int[] joinCount;
+  // the goal join on the shortest path, or -1 if it runs straight along the
+  // start's corridor in directDir for directLength steps
+  private int bestJoin;
+  private int directLength;
+  private int directDir;
+  // the number of nodes the last search expanded
+  private int expanded;
+
+  // collapses the corridors of the given grid, where every junction and dead
+  // end is a node
+  JunctionGraph(MazeGrid grid) {
+    this(grid, new int[0]);
+  }
+
+  // collapses the corridors of the given grid, where the given cells are nodes
+  // as well as every junction and dead end
+  JunctionGraph(MazeGrid grid, int[] keep) {
+    this.grid = grid;
+    this.nodeOf = new int[grid.size()];
+    for (int cell : keep) {
+      this.nodeOf[cell] = KEPT;
+    }
+    int nodes = 0;
+    int edges = 0;
+    for (int cell = 0; cell < grid.size(); cell += 1) {
+      int degree = this.degree(cell);
+      if (degree != 2 || this.nodeOf[cell] == KEPT) {
+        this.nodeOf[cell] = nodes;
+        nodes += 1;
+        edges += degree;
+      } else {
+        this.nodeOf[cell] = -1;
+      }
+    }
+    this.cells = new int[nodes];
+    this.offsets = new int[nodes + 1];
+    this.targets = new int[edges];
+    this.lengths = new int[edges];
+    this.starts = new byte[edges];
+    this.open = new IndexedLongHeap(nodes);
+    this.distance = new int[nodes];
+    this.through = new int[nodes];
+    this.stack = new int[nodes];
+    this.reached = new EpochMarks(nodes);
+    this.closed = new EpochMarks(nodes);
+    this.joinNode = new int[4];
+    this.joinLength = new int[4];
+    this.joinDir = new byte[4];
+    this.joinCount = new int[2];
+
+    for (int cell = 0; cell < grid.size(); cell += 1) {
+      int node = this.nodeOf[cell];
+      if (node >= 0) {
+        this.cells[node] = cell;
+        this.offsets[node + 1] = this.offsets[node] + this.degree(cell);
+      }
+    }
+    // walk every corridor once, from the first of its nodes, and fill in its
+    // edge from both ends, where a corridor joining two nodes that are
+    // already connected closes a loop
+    IntUnionFind components = new IntUnionFind(nodes);
+    boolean loops = false;
+    for (int node = 0; node < nodes; node += 1) {
+      int edge = this.offsets[node];
+      for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+        if (grid.isOpen(this.cells[node], dir)) {
+          if (this.lengths[edge] == 0) {
+            int cell = grid.neighbor(this.cells[node], dir);
+            int heading = dir;
+            int length = 1;
+            while (this.nodeOf[cell] < 0) {
+              heading = this.exit(cell, heading ^ 1);
+              cell = grid.neighbor(cell, heading);
+              length += 1;
+            }
+            int target = this.nodeOf[cell];
+            int back = this.offsets[target] + this.rank(cell, heading ^ 1);
+            this.targets[edge] = target;
+            this.lengths[edge] = length;
+            this.starts[edge] = (byte) dir;
+            this.targets[back] = node;
+            this.lengths[back] = length;
+            this.starts[back] = (byte) (heading ^ 1);
+            if (!components.union(node, target)) {
+              loops = true;
+            }
+          }
+          edge += 1;
+        }
+      }
+    }
+    this.tree = !loops;
+  }
+
+  // returns the number of open walls of the given cell
+  private int degree(int cell) {
+    int degree = 0;
+    for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+      if (this.grid.isOpen(cell, dir)) {
+        degree += 1;
+      }
+    }
+    return degree;
+  }
+
+  // returns the number of open walls of the given cell before the given
+  // direction, which is where the edge leaving it that way is kept
+  private int rank(int cell, int dir) {
+    int rank = 0;
+    for (int before = MazeGrid.UP; before < dir; before += 1) {
+      if (this.grid.isOpen(cell, before)) {
+        rank += 1;
+      }
+    }
+    return rank;
+  }
+
+  // returns the way out of the given corridor cell that isn't the given way
+  // back
+  private int exit(int cell, int back) {
+    for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+      if (dir != back && this.grid.isOpen(cell, dir)) {
+        return dir;
+      }
+    }
+    return -1;
+  }
+
+  // returns the number of nodes
+  int nodes() {
+    return this.cells.length;
+  }
+
+  // returns the number of edges, counting each corridor once
+  int edges() {
+    return this.targets.length / 2;
+  }
+
+  // returns the number of nodes the last search expanded
+  int expanded() {
+    return this.expanded;
+  }
+
+  // returns the Manhattan distance between two cells, which no corridor
+  // between them can be shorter than
+  private int estimate(int cell1, int cell2) {
+    return Math.abs(this.grid.x(cell1) - this.grid.x(cell2))
+        + Math.abs(this.grid.y(cell1) - this.grid.y(cell2));
+  }
+
+  // to find where the given cell joins the graph: the cell itself if it is a
+  // node, otherwise the nodes at both ends of its corridor, and to look for
+  // the other given cell along the way
+  // EFFECT: sets the joins of the given side, and the direct path if the
+  // other cell is on the same corridor
+  private void join(int cell, int side, int other) {
+    int base = 2 * side;
+    this.joinCount[side] = 0;
+    if (this.nodeOf[cell] >= 0) {
+      this.joinNode[base] = this.nodeOf[cell];
+      this.joinLength[base] = 0;
+      this.joinCount[side] = 1;
+      return;
+    }
+    for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+      if (this.grid.isOpen(cell, dir)) {
+        int at = this.grid.neighbor(cell, dir);
+        int heading = dir;
+        int length = 1;
+        while (this.nodeOf[at] < 0 && at != cell) {
+          if (at == other && length < this.directLength) {
+            this.directLength = length;
+            this.directDir = dir;
+          }
+          heading = this.exit(at, heading ^ 1);
+          at = this.grid.neighbor(at, heading);
+          length += 1;
+        }
+        // a ring of corridor with no node on it never joins the graph
+        if (at != cell) {
+          int slot = base + this.joinCount[side];
+          this.joinNode[slot] = this.nodeOf[at];
+          this.joinLength[slot] = length;
+          this.joinDir[slot] = (byte) dir;
+          this.joinCount[side] += 1;
+        }
+      }
+    }
+  }
+
+  // to reach the given node at the given distance through the given edge,
+  // or from the given start join as -1 - join
+  // EFFECT: sets its distance and edge, and offers it to the heap
+  private void reach(int node, int distance, int through, int goal) {
+    this.reached.mark(node);
+    this.distance[node] = distance;
+    this.through[node] = through;
+    int estimate = this.estimate(this.cells[node], goal);
+    this.open.offer(node, ((long) (distance + estimate) << 32) | estimate);
+  }
+
+  // to find a shortest path between the two cells with A* over the nodes,
+  // joining cells in the middle of a corridor to the nodes at its ends,
+  // returning its length or -1 if there is none
+  // EFFECT: replaces the search state, and counts the nodes expanded
+  private int search(int from, int to) {
+    this.open.clear();
+    this.reached.clear();
+    this.closed.clear();
+    this.expanded = 0;
+    this.bestJoin = -1;
+    this.directDir = -1;
+    if (from == to) {
+      this.directLength = 0;
+      return 0;
+    }
+    this.directLength = Integer.MAX_VALUE;
+    this.join(from, START, to);
+    this.join(to, GOAL, -1);
+    if (this.tree) {
+      return this.treeSearch();
+    }
+    int best = this.directLength;
+
+    for (int slot = 0; slot < this.joinCount[START]; slot += 1) {
+      int node = this.joinNode[slot];
+      if (!this.reached.isMarked(node) || this.joinLength[slot] < this.distance[node]) {
+        this.reach(node, this.joinLength[slot], -1 - slot, to);
+      }
+    }
+    while (!this.open.isEmpty() && (this.open.key(this.open.peek()) >>> 32) < best) {
+      int node = this.open.remove();
+      this.closed.mark(node);
+      this.expanded += 1;
+      for (int slot = 2; slot < 2 + this.joinCount[GOAL]; slot += 1) {
+        if (this.joinNode[slot] == node && this.distance[node] + this.joinLength[slot] < best) {
+          best = this.distance[node] + this.joinLength[slot];
+          this.bestJoin = slot;
+        }
+      }
+      for (int edge = this.offsets[node]; edge < this.offsets[node + 1]; edge += 1) {
+        int target = this.targets[edge];
+        int next = this.distance[node] + this.lengths[edge];
+        if (!this.closed.isMarked(target)
+            && (!this.reached.isMarked(target) || next < this.distance[target])) {
+          this.reach(target, next, edge, to);
+        }
+      }
+    }
+    if (best == Integer.MAX_VALUE) {
+      return -1;
+    }
+    return best;
+  }
+
+  // to find the only path between the joins of the last query in a graph with
+  // no loops, returning its length or -1 if there is none. No order is
+  // needed, so a depth first search stands in for A*, and it can stop at the
+  // first goal join it expands: the other one is behind the goal's own
+  // corridor, which is only reached through it.
+  // EFFECT: replaces the search state, and counts the nodes expanded
+  private int treeSearch() {
+    if (this.directLength != Integer.MAX_VALUE) {
+      return this.directLength;
+    }
+    int top = 0;
+    for (int slot = 0; slot < this.joinCount[START]; slot += 1) {
+      int node = this.joinNode[slot];
+      this.reached.mark(node);
+      this.distance[node] = this.joinLength[slot];
+      this.through[node] = -1 - slot;
+      this.stack[top] = node;
+      top += 1;
+    }
+    while (top > 0) {
+      top -= 1;
+      int node = this.stack[top];
+      this.expanded += 1;
+      for (int slot = 2; slot < 2 + this.joinCount[GOAL]; slot += 1) {
+        if (this.joinNode[slot] == node) {
+          this.bestJoin = slot;
+          return this.distance[node] + this.joinLength[slot];
+        }
+      }
+      for (int edge = this.offsets[node]; edge < this.offsets[node + 1]; edge += 1) {
+        int target = this.targets[edge];
+        if (!this.reached.isMarked(target)) {
+          this.reached.mark(target);
+          this.distance[target] = this.distance[node] + this.lengths[edge];
+          this.through[target] = edge;
+          this.stack[top] = target;
+          top += 1;
+        }
+      }
+    }
+    return -1;
+  }
+
+  // returns the number of steps on a shortest path between the two cells, or
+  // -1 if there is none
+  int distance(int from, int to) {
+    return this.search(from, to);
+  }
+
+  // returns the cells on a shortest path from the first cell to the second,
+  // in order, or an empty array if there is none
+  int[] path(int from, int to) {
+    int length = this.search(from, to);
+    if (length == -1) {
+      return new int[0];
+    }
+    int[] path = new int[length + 1];
+    path[0] = from;
+    path[length] = to;
+    if (this.bestJoin == -1) {
+      // the goal is along the start's own corridor
+      this.walk(from, this.directDir, length - 1, path, 0, 1);
+      return path;
+    }
+
+    // walk from the goal back to where it joins the graph
+    int end = length;
+    this.walk(to, this.joinDir[this.bestJoin], this.joinLength[this.bestJoin], path, end, -1);
+    end -= this.joinLength[this.bestJoin];
+    // walk each corridor forwards, filling the path in from the end
+    int node = this.joinNode[this.bestJoin];
+    while (this.through[node] >= 0) {
+      int edge = this.through[node];
+      int source = this.source(edge);
+      int at = end - this.lengths[edge];
+      path[at] = this.cells[source];
+      this.walk(this.cells[source], this.starts[edge], this.lengths[edge] - 1, path, at, 1);
+      end = at;
+      node = source;
+    }
+    // and from the start to where it joins the graph
+    int slot = -1 - this.through[node];
+    this.walk(from, this.joinDir[slot], this.joinLength[slot] - 1, path, 0, 1);
+    return path;
+  }
+
+  // to write the given number of cells met walking from the given cell along
+  // its corridor in the given direction, one every step places from at
+  // EFFECT: sets those cells of the path
+  private void walk(int cell, int dir, int steps, int[] path, int at, int step) {
+    int next = cell;
+    int heading = dir;
+    for (int i = 1; i <= steps; i += 1) {
+      next = this.grid.neighbor(next, heading);
+      path[at + i * step] = next;
+      if (i < steps) {
+        heading = this.exit(next, heading ^ 1);
+      }
+    }
+  }
+
+  // returns the node the given edge leaves
+  private int source(int edge) {
+    int low = 0;
+    int high = this.nodes() - 1;
+    // the last node whose edges start at or before this one
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (this.offsets[mid] <= edge) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+}
+
+// Represents the search and drawing state of every cell in a MazeGrid, kept as
+// one primitive array per field rather than as fields of Cell objects
+class GridState {
+  // has this cell been visited by a search or the player
+  private final boolean[] visited;
+  // has this cell been visited by a search from the end of the maze
+  private final boolean[] visitedFromEnd;
+  // is the cell part of the highlighted path
+  private final boolean[] highlighted;
+  // the cell this cell was reached from, -1 if there is none
+  private final int[] previouslyAccessed;
+
+  GridState(int size) {
+    this.visited = new boolean[size];
+    this.visitedFromEnd = new boolean[size];
+    this.highlighted = new boolean[size];
+    this.previouslyAccessed = new int[size];
+    Arrays.fill(this.previouslyAccessed, -1);
+  }
+
+  // has the given cell been visited?
+  boolean isVisited(int cell) {
+    return this.visited[cell];
+  }
+
+  // has the given cell been visited by a search from the end?
+  boolean isVisitedFromEnd(int cell) {
+    return this.visitedFromEnd[cell];
+  }
+
+  // is the given cell highlighted?
+  boolean isHighlighted(int cell) {
+    return this.highlighted[cell];
+  }
+
+  // returns the cell the given cell was reached from, or -1
+  int previous(int cell) {
+    return this.previouslyAccessed[cell];
+  }
+
+  // EFFECT: marks the given cell as visited
+  void visit(int cell) {
+    this.visited[cell] = true;
+  }
+
+  // EFFECT: marks the given cell as visited by a search from the end
+  void visitFromEnd(int cell) {
+    this.visitedFromEnd[cell] = true;
+  }
+
+  // to remember that the given cell is reached from prev, even if it was
+  // already visited
+  // EFFECT: mutates the previouslyAccessed of the given cell
+  void link(int cell, int prev) {
+    this.previouslyAccessed[cell] = prev;
+  }
+
+  // to remember that the given cell was reached from prev, unless the cell was
+  // already visited (which keeps the first path to it)
+  // EFFECT: mutates the previouslyAccessed of the given cell
+  void updateCellHistory(int cell, int prev) {
+    if (!this.visited[cell]) {
+      this.previouslyAccessed[cell] = prev;
+    }
+  }
+
+  // to highlight the given cell and every cell it was reached from
+  // EFFECT: sets highlighted for each cell along the path back to the start
+  void highlight(int cell) {
+    while (cell != -1) {
+      this.highlighted[cell] = true;
+      cell = this.previouslyAccessed[cell];
+    }
+  }
+
+  // to move the player from the given cell in the given direction, returning
+  // the cell the player ends up on
+  // EFFECT: visits the cell moved from, and if the move succeeds, moves the
+  // highlight to the new cell and records where it was reached from
+  int move(MazeGrid grid, int from, int direction) {
+    this.visited[from] = true;
+    int to = grid.move(from, direction);
+    if (to != from) {
+      this.highlighted[to] = true;
+      this.updateCellHistory(to, from);
+      this.highlighted[from] = false;
+    }
+    return to;
+  }
+}
@@ -1,13 +1,12 @@
 import java.awt.Color;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Deque;
-import java.util.HashMap;
 import java.util.Random;
 import javalib.impworld.*;
 import javalib.worldimages.AlignModeX;
 import javalib.worldimages.AlignModeY;
+import javalib.worldimages.EmptyImage;
 import javalib.worldimages.OutlineMode;
 import javalib.worldimages.OverlayOffsetAlign;
 import javalib.worldimages.Posn;
@@ -100,6 +99,212 @@ class DrawGraph {
   }
 }
 
+// This helper class renders a MazeGrid the same way DrawGraph renders Cells,
+// row by row from the top left, reading walls and state from the arrays
+class DrawGrid {
+  private final WorldScene scene;
+  // the size of each cell
+  private final int cellDimensions;
+  private final MazeGrid grid;
+  private final GridState state;
+  // distances used for the heatmap
+  private final HeatFields heat;
+  // the images of cells drawn before, reused while they look the same
+  private final CellImages images;
+
+  DrawGrid(WorldScene scene, int cellDimensions, MazeGrid grid, GridState state,
+      HeatFields heat) {
+    this(scene, cellDimensions, grid, state, heat, new CellImages(grid.size()));
+  }
+
+  DrawGrid(WorldScene scene, int cellDimensions, MazeGrid grid, GridState state,
+      HeatFields heat, CellImages images) {
+    this.scene = scene;
+    this.cellDimensions = cellDimensions;
+    this.grid = grid;
+    this.state = state;
+    this.heat = heat;
+    this.images = images;
+  }
+
+  // draws every cell in the maze, row by row
+  // mode 0 is normal, 1 is a heatmap from the top left and 2 is a heatmap from
+  // the bottom right
+  void drawCells(int mode) {
+    int furthestFromOrigin = 0;
+    GridSearch field = null;
+    // the heatmap is scaled by one more than the furthest distance, the same
+    // as Cell.calculateDistanceFromThisCell
+    if (mode == 1) {
+      field = this.heat.field(HeatFields.TOP_LEFT);
+      furthestFromOrigin = this.heat.furthest(HeatFields.TOP_LEFT) + 1;
+    } else if (mode == 2) {
+      field = this.heat.field(HeatFields.BOTTOM_RIGHT);
+      furthestFromOrigin = this.heat.furthest(HeatFields.BOTTOM_RIGHT) + 1;
+      mode = 1;
+    }
+
+    Utils utils = new Utils();
+    for (int cell = 0; cell < this.grid.size(); cell += 1) {
+      int distance = 0;
+      if (field != null) {
+        distance = Math.max(0, field.distanceTo(cell));
+      }
+      Color color = utils.cellColor(this.state.isHighlighted(cell), this.state.isVisited(cell),
+          this.state.isVisitedFromEnd(cell), mode, distance, furthestFromOrigin);
+      this.drawCell(cell, color);
+    }
+  }
+
+  // places the image of the given cell, with its walls, onto the scene,
+  // only building a new image if the cell's color or walls changed
+  // EFFECT: mutates the scene and the cached images
+  void drawCell(int cell, Color color) {
+    int look = (color.getRGB() & 0xFFFFFF) << 4;
+    for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+      if (this.grid.isOpen(cell, dir)) {
+        look |= 1 << dir;
+      }
+    }
+    if (!this.images.looksLike(cell, look)) {
+      this.images.update(cell, look, this.buildCell(cell, color));
+    }
+    this.scene.placeImageXY(this.images.image(cell),
+        (this.grid.x(cell) * this.cellDimensions) + (this.cellDimensions / 2) + 1,
+        (this.grid.y(cell) * this.cellDimensions) + (this.cellDimensions / 2) + 1);
+  }
+
+  // returns the image of the given cell, with its walls
+  WorldImage buildCell(int cell, Color color) {
+    WorldImage cellImg = new RectangleImage(this.cellDimensions,
+        this.cellDimensions, OutlineMode.SOLID, color);
+    cellImg = new OverlayOffsetAlign(AlignModeX.LEFT, AlignModeY.MIDDLE,
+        this.drawWall(cell, MazeGrid.LEFT), 0, 0, cellImg);
+    cellImg = new OverlayOffsetAlign(AlignModeX.RIGHT, AlignModeY.MIDDLE,
+        this.drawWall(cell, MazeGrid.RIGHT), 0, 0, cellImg);
+    cellImg = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.TOP,
+        new RotateImage(this.drawWall(cell, MazeGrid.UP), 90), 0, 0, cellImg);
+    cellImg = new OverlayOffsetAlign(AlignModeX.CENTER, AlignModeY.BOTTOM,
+        new RotateImage(this.drawWall(cell, MazeGrid.DOWN), 90), 0, 0, cellImg);
+    return cellImg;
+  }
+
+  // to draw the wall on the given side of a cell, like Edge.drawWall
+  WorldImage drawWall(int cell, int direction) {
+    if (this.grid.isOpen(cell, direction)) {
+      return new EmptyImage();
+    }
+    int wallWidth = (int) (this.cellDimensions * .1);
+    return new RectangleImage(wallWidth, this.cellDimensions, OutlineMode.SOLID,
+        Color.BLACK);
+  }
+}
+
+// Keeps the distance fields a heatmap is drawn from, one from the top left and
+// one from the bottom right of a grid. Each is only searched for again once
+// the walls have changed since it was found, so redrawing a finished maze or
+// switching between the heatmaps costs nothing.
+class HeatFields {
+  // the corners a field can be found from
+  static final int TOP_LEFT = 0;
+  static final int BOTTOM_RIGHT = 1;
+
+  private final MazeGrid grid;
+  // the field from each corner, made the first time it is needed
+  private final GridSearch[] fields;
+  // the furthest distance in each field
+  private final int[] furthest;
+  // the version of the walls each field was found for
+  private final int[] versions;
+  // has each field been found at all
+  private final boolean[] found;
+  private int searches;
+
+  HeatFields(MazeGrid grid) {
+    this.grid = grid;
+    this.fields = new GridSearch[2];
+    this.furthest = new int[2];
+    this.versions = new int[2];
+    this.found = new boolean[2];
+    this.searches = 0;
+  }
+
+  // returns the distances from the given corner to every cell of the maze as
+  // it is now
+  // EFFECT: searches again if the walls have changed since the last search
+  GridSearch field(int corner) {
+    int version = this.grid.version();
+    if (!this.found[corner] || this.versions[corner] != version) {
+      if (this.fields[corner] == null) {
+        this.fields[corner] = new GridSearch(this.grid);
+      }
+      int origin = 0;
+      if (corner == BOTTOM_RIGHT) {
+        origin = this.grid.size() - 1;
+      }
+      this.furthest[corner] = this.fields[corner].distancesFrom(origin);
+      this.versions[corner] = version;
+      this.found[corner] = true;
+      this.searches += 1;
+    }
+    return this.fields[corner];
+  }
+
+  // returns the furthest distance from the given corner in the maze as it is
+  // now
+  // EFFECT: searches again if the walls have changed since the last search
+  int furthest(int corner) {
+    this.field(corner);
+    return this.furthest[corner];
+  }
+
+  // returns how many times a field has been searched for
+  int searches() {
+    return this.searches;
+  }
+}
+
+// Keeps the image of every cell of a grid from the last time it was drawn,
+// along with how it looked, its color and which of its walls were open, so a
+// cell is only built again when one of those changes
+class CellImages {
+  // the color of each cell << 4 | a bit for each open wall, -1 if never drawn
+  private final int[] looks;
+  private final WorldImage[] images;
+  // how many images have been built
+  private int built;
+
+  CellImages(int size) {
+    this.looks = new int[size];
+    this.images = new WorldImage[size];
+    Arrays.fill(this.looks, -1);
+    this.built = 0;
+  }
+
+  // does the image of the given cell have the given look?
+  boolean looksLike(int cell, int look) {
+    return this.looks[cell] == look;
+  }
+
+  // returns the image of the given cell
+  WorldImage image(int cell) {
+    return this.images[cell];
+  }
+
+  // to replace the image of the given cell
+  // EFFECT: stores the image and its look
+  void update(int cell, int look, WorldImage image) {
+    this.looks[cell] = look;
+    this.images[cell] = image;
+    this.built += 1;
+  }
+
+  // returns how many cell images have been built
+  int built() {
+    return this.built;
+  }
+}
+
 // Help interface used to iterate through different animations in the maze game
 interface IAnimationHelper {
   // on call, to iterate one step through the animation
@@ -109,53 +314,165 @@ interface IAnimationHelper {
   boolean isFinished();
 }
 
+// Tells the time for pacing animations
+interface IClock {
+  // returns the current time in nanoseconds, from some fixed origin
+  long nanos();
+}
+
+// The system's monotonic clock
+class SystemClock implements IClock {
+  // returns System.nanoTime()
+  public long nanos() {
+    return System.nanoTime();
+  }
+}
+
+// A clock that moves on by a fixed number of nanoseconds every time it is
+// read, so that a frame's steps can be replayed exactly
+class TickingClock implements IClock {
+  private final long tick;
+  private long now;
+
+  TickingClock(long tick) {
+    this.tick = tick;
+    this.now = 0;
+  }
+
+  // returns the time, then moves it on by one tick
+  // EFFECT: advances the clock
+  public long nanos() {
+    long now = this.now;
+    this.now += this.tick;
+    return now;
+  }
+}
+
+// Decides how many steps of an animation to run in each frame: as many as fit
+// in a time budget, up to a limit, but always at least one. Looking at the
+// clock after every step would cost more than a step of most animations, so
+// steps run in batches sized from how long the last frame's steps took, an
+// eighth of the budget at a time. On a slow machine, or for slow steps, fewer
+// steps fit and the frame still ends on time.
+class AnimationPacer {
+  // the time each frame can spend on steps, in nanoseconds
+  private final long budget;
+  private final int maxSteps;
+  private final IClock clock;
+  // how many steps to run between looks at the clock
+  private int batch;
+
+  AnimationPacer(long budgetNanos, int maxSteps) {
+    this(budgetNanos, maxSteps, new SystemClock());
+  }
+
+  AnimationPacer(long budgetNanos, int maxSteps, IClock clock) {
+    if (budgetNanos < 0 || maxSteps < 1) {
+      throw new IllegalArgumentException("A frame must have time for at least one step");
+    }
+    this.budget = budgetNanos;
+    this.maxSteps = maxSteps;
+    this.clock = clock;
+    this.batch = 1;
+  }
+
+  // returns a pacer that runs exactly one step per frame
+  static AnimationPacer oneStep() {
+    return new AnimationPacer(0, 1);
+  }
+
+  // returns a pacer that runs as many steps as fit in the given number of
+  // milliseconds per frame
+  static AnimationPacer millis(long millisPerFrame) {
+    return new AnimationPacer(millisPerFrame * 1000000, Integer.MAX_VALUE);
+  }
+
+  // to run one frame of the given animation, returning how many steps it took
+  // EFFECT: iterates the animation, and resizes the batch to fit the budget
+  int step(IAnimationHelper helper) {
+    long start = this.clock.nanos();
+    long elapsed = 0;
+    int steps = 0;
+    while (steps < this.maxSteps && !helper.isFinished()) {
+      int until = steps + Math.min(this.batch, this.maxSteps - steps);
+      while (steps < until && !helper.isFinished()) {
+        helper.iterate();
+        steps += 1;
+      }
+      elapsed = this.clock.nanos() - start;
+      if (elapsed >= this.budget) {
+        break;
+      }
+    }
+
+    if (steps > 0) {
+      long perStep = Math.max(1, elapsed / steps);
+      this.batch = (int) Math.max(1, Math.min(this.maxSteps, this.budget / 8 / perStep));
+    }
+    return steps;
+  }
+}
+
 // This class is used for maze generation, unionizing one edge
 // on each iteration (Extra credit)
 class KruskalsUnionFind implements IAnimationHelper {
   private final ArrayList<Edge> edges;
-  private final HashMap<Posn, Posn> representatives;
+  // cells are numbered y * width + x in this forest
+  private IntUnionFind representatives;
+  private int width;
+  private int height;
   private int index;
 
   KruskalsUnionFind(ArrayList<Edge> edges) {
     this.edges = edges;
-    this.edges.sort(new CompareEdges());
-    this.representatives = new HashMap<>();
+    new EdgeOrder().sort(this.edges);
     this.index = 0;
     this.putEdges();
   }
 
-  // To find the representative of a given position (cell) in the HashMap
+  // to return the index of the given position (cell) in the union find
+  private int indexOf(Posn id) {
+    return id.y * this.width + id.x;
+  }
+
+  // To find the representative of a given position (cell) in the union find
   Posn find(Posn key) {
-    if (this.representatives.get(key).equals(key)) {
-      return key;
-    } else {
-      Posn root = this.find(this.representatives.get(key));
-      representatives.put(key, root);
-      return root;
-    }
+    int root = this.representatives.find(this.indexOf(key));
+    return new Posn(root % this.width, root / this.width);
   }
 
-  // To unionize two specific positions (cells) in the HashMap,
+  // To unionize two specific positions (cells) in the union find,
   // possibly combining two trees.
-  // EFFECT: Mutates the represntative tree, replacing root1's
-  // value with root2
+  // EFFECT: Mutates the represntative tree, linking the shallower of the two
+  // roots under the other, or root1 under root2 on a tie
   void union(Posn root1, Posn root2) {
-    this.representatives.put(root1, root2);
+    this.representatives.union(this.indexOf(root1), this.indexOf(root2));
   }
 
-  // To create the minimum spanning tree of our randomized maze graph
-  // EFFECT: adds all edges to a given HashMap representing a spanning tree
-  void putEdges() {
+  // To grow the known bounds of the maze so that they include the given cell
+  // EFFECT: mutates the width and height to cover the given position
+  void addNode(Posn id) {
+    this.width = Math.max(this.width, id.x + 1);
+    this.height = Math.max(this.height, id.y + 1);
+  }
 
+  // To reset the union find so every cell touched by an edge is its own tree
+  // EFFECT: measures the maze from the edges and replaces the union find
+  // with a fresh one of that size
+  void putEdges() {
+    this.width = 0;
+    this.height = 0;
     for (Edge e : edges) {
-      e.addNodes(this.representatives);
+      e.addNodes(this);
     }
-
+    this.representatives = new IntUnionFind(this.width * this.height);
   }
 
-  // To determine if the maze is finished generating
+  // To determine if the maze is finished generating, either every edge has been
+  // tried or the cells already form a single spanning tree
   public boolean isFinished() {
-    return this.edges.size() <= this.index;
+    return this.edges.size() <= this.index
+        || this.representatives.unions() >= this.representatives.size() - 1;
   }
 
   // To move forward through states of maze generation, unionizing one step at a
@@ -172,15 +489,12 @@ class KruskalsUnionFind implements IAnimationHelper {
   // Unionizes cells and mutates the edge wall field to
   // indicate connecting two cells representationally
   // EFFECT: To connect cells using union if cells are not already connected,
-  // which mutates the HashMap spanning
+  // which mutates the union find spanning
   void connectCells(Edge from, ICell cell1, ICell cell2) {
-    Posn root1 = this.find(cell1.getId());
-    Posn root2 = this.find(cell2.getId());
-
     // if both cells don't have the same root
-    if (!root1.equals(root2)) {
+    if (this.representatives.union(this.indexOf(cell1.getId()),
+        this.indexOf(cell2.getId()))) {
       from.breakWall();
-      this.union(root1, root2);
     }
   }
 }
@@ -188,13 +502,22 @@ class KruskalsUnionFind implements IAnimationHelper {
 // This class helps iterate through each step of both BFS and DFS search
 // algorithims
 class SearchHelper implements IAnimationHelper {
-  private final Deque<Cell> alreadySeen;
+  // the cells already seen, by the index y * width + x of their ids
+  private final EpochMarks alreadySeen;
+  private final int width;
   private final Cell to;
   private final ICollection<Cell> worklist;
   private boolean finished;
 
-  SearchHelper(Cell from, Cell to, ICollection<Cell> worklist) {
-    this.alreadySeen = new ArrayDeque<Cell>();
+  // searches a maze of the given width, using the given marks, one for every
+  // cell of the maze, for the cells already seen, which are cleared in
+  // constant time so searches on the same maze can share them
+  // EFFECT: clears the marks
+  SearchHelper(Cell from, Cell to, ICollection<Cell> worklist, EpochMarks alreadySeen,
+      int width) {
+    this.alreadySeen = alreadySeen;
+    alreadySeen.clear();
+    this.width = width;
     this.to = to;
     this.worklist = worklist;
     // putting the first cell in the owrklist
@@ -202,24 +525,129 @@ class SearchHelper implements IAnimationHelper {
     this.finished = false;
   }
 
+  // returns the index of the given cell in the marks
+  private int indexOf(Cell cell) {
+    Posn id = cell.getId();
+    if (id.x >= this.width || id.y * this.width + id.x >= this.alreadySeen.size()) {
+      throw new IllegalArgumentException("Cell is outside the maze");
+    }
+    return id.y * this.width + id.x;
+  }
+
   // To help move through each step of the search algorithim, used for animation
-  // EFFECT: mutates the worklist, removing the next value and adds to already
-  // seen
+  // EFFECT: mutates the worklist, removing the next value and marks it as
+  // already seen
   // in order to keep track of location in the search algorithim.
   public void iterate() {
     if (!this.isFinished()) {
       Cell next = worklist.remove();
+      int index = this.indexOf(next);
+      boolean seen = this.alreadySeen.isMarked(index);
+      this.alreadySeen.mark(index);
       // if next is the target, highlight it and the rest of the solution path
       if (next == this.to) {
         next.highlight();
         this.finished = true;
       }
       // otherwise, add the neighbors of next to the worklist
-      else if (!alreadySeen.contains(next)) {
+      else if (!seen) {
         next.addNeighborsToWorklist(this.worklist);
       }
+    }
+  }
+
+  // To help determine if the maze has reached the target cell,
+  // which indicates that the search algorithm has found the end cell.
+  public boolean isFinished() {
+    return this.worklist.isEmpty() || this.finished;
+  }
 
-      this.alreadySeen.add(next);
+}
+
+// This class helps iterate through each step of both BFS and DFS search
+// algorithims over a MazeGrid, in the same order as SearchHelper does over
+// Cells
+class GridSearchHelper implements IAnimationHelper {
+  private final MazeGrid grid;
+  private final GridState state;
+  private final EpochMarks alreadySeen;
+  private final int to;
+  private final IIntCollection worklist;
+  private boolean finished;
+
+  GridSearchHelper(MazeGrid grid, GridState state, int from, int to,
+      IIntCollection worklist) {
+    this(grid, state, from, to, worklist, new EpochMarks(grid.size()));
+  }
+
+  // uses the given marks for the cells already seen, which are cleared in
+  // constant time so searches on the same maze can share them
+  // EFFECT: clears the marks
+  GridSearchHelper(MazeGrid grid, GridState state, int from, int to,
+      IIntCollection worklist, EpochMarks alreadySeen) {
+    this.grid = grid;
+    this.state = state;
+    this.alreadySeen = alreadySeen;
+    alreadySeen.clear();
+    this.to = to;
+    this.worklist = worklist;
+    // putting the first cell in the worklist
+    this.addToList(from);
+    this.finished = false;
+  }
+
+  // to add the given cell to the worklist if it has not been visited
+  // EFFECT: mutates the worklist
+  private void addToList(int cell) {
+    if (!this.state.isVisited(cell)) {
+      this.worklist.add(cell);
+    }
+  }
+
+  // to add all non visited neighbors of a cell to the worklist,
+  // and update those neighbors with the cell they were reached from
+  // EFFECT: visits the cell and mutates the worklist and the state
+  private void addNeighborsToWorklist(int cell) {
+    this.state.visit(cell);
+    if (this.grid.isOpen(cell, MazeGrid.LEFT)) {
+      this.addToList(cell - 1);
+    }
+    if (this.grid.isOpen(cell, MazeGrid.RIGHT)) {
+      this.addToList(cell + 1);
+    }
+    if (this.grid.isOpen(cell, MazeGrid.UP)) {
+      this.addToList(cell - this.grid.width());
+    }
+    if (this.grid.isOpen(cell, MazeGrid.DOWN)) {
+      this.addToList(cell + this.grid.width());
+    }
+
+    // updates the cell history of neighbors to be this cell, used
+    // to retrace the optimal path
+    for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+      if (this.grid.isOpen(cell, dir)) {
+        this.state.updateCellHistory(this.grid.neighbor(cell, dir), cell);
+      }
+    }
+  }
+
+  // To help move through each step of the search algorithim, used for animation
+  // EFFECT: mutates the worklist, removing the next value and adds to already
+  // seen in order to keep track of location in the search algorithim.
+  public void iterate() {
+    if (!this.isFinished()) {
+      int next = this.worklist.remove();
+      // if next is the target, highlight it and the rest of the solution path
+      if (next == this.to) {
+        this.state.highlight(next);
+        this.finished = true;
+      }
+      // otherwise, add the neighbors of next to the worklist
+      else if (!this.alreadySeen.isMarked(next)) {
+        this.addNeighborsToWorklist(next);
+      }
+
+      this.alreadySeen.mark(next);
     }
   }
 
@@ -228,7 +656,262 @@ class SearchHelper implements IAnimationHelper {
   public boolean isFinished() {
     return this.worklist.isEmpty() || this.finished;
   }
+}
+
+// This class helps iterate through each step of an A* search over a
+// MazeGrid, always expanding the cell whose distance from the start plus
+// Manhattan distance to the target is smallest. No path through a maze is
+// shorter than the Manhattan distance, so the first path found to the target
+// is a shortest one, while cells leading away from it are put off.
+// Ties go to the cell nearest the target, which on a grid keeps the search
+// running down one corridor instead of widening over every equal path.
+class GridAStar implements IAnimationHelper {
+  private final MazeGrid grid;
+  private final GridState state;
+  private final int to;
+  // the cells to expand, keyed by (distance + estimate) << 32 | estimate
+  private final IndexedLongHeap open;
+  // the shortest known distance from the start to each cell, -1 if unknown
+  private final int[] distance;
+  private int expanded;
+  private boolean finished;
+
+  GridAStar(MazeGrid grid, GridState state, int from, int to) {
+    this.grid = grid;
+    this.state = state;
+    this.to = to;
+    this.open = new IndexedLongHeap(grid.size());
+    this.distance = new int[grid.size()];
+    Arrays.fill(this.distance, -1);
+    this.expanded = 0;
+    this.finished = false;
+    this.distance[from] = 0;
+    this.open.offer(from, this.key(from, 0));
+  }
+
+  // returns the heap key of the given cell at the given distance
+  private long key(int cell, int distance) {
+    int estimate = Math.abs(this.grid.x(cell) - this.grid.x(this.to))
+        + Math.abs(this.grid.y(cell) - this.grid.y(this.to));
+    return ((long) (distance + estimate) << 32) | estimate;
+  }
+
+  // To expand the most promising cell, used for animation
+  // EFFECT: visits the cell and offers its neighbors to the heap, or
+  // highlights the path if the cell is the target
+  public void iterate() {
+    if (this.isFinished()) {
+      return;
+    }
+    int cell = this.open.remove();
+    if (cell == this.to) {
+      this.state.highlight(cell);
+      this.finished = true;
+      return;
+    }
+    this.state.visit(cell);
+    this.expanded += 1;
+    int next = this.distance[cell] + 1;
+    for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+      if (this.grid.isOpen(cell, dir)) {
+        int neighbor = this.grid.neighbor(cell, dir);
+        if (!this.state.isVisited(neighbor)
+            && (this.distance[neighbor] == -1 || next < this.distance[neighbor])) {
+          this.distance[neighbor] = next;
+          this.state.updateCellHistory(neighbor, cell);
+          this.open.offer(neighbor, this.key(neighbor, next));
+        }
+      }
+    }
+  }
+
+  // To solve the whole maze at once, returning the length of the shortest
+  // path to the target, or -1 if there is none
+  // EFFECT: visits the expanded cells and highlights the path
+  int solve() {
+    while (!this.isFinished()) {
+      this.iterate();
+    }
+    if (this.finished) {
+      return this.distance[this.to];
+    }
+    return -1;
+  }
+
+  // returns how many cells have been expanded so far
+  int expanded() {
+    return this.expanded;
+  }
+
+  // To determine if the search has reached the target, or has nowhere left
+  // to go
+  public boolean isFinished() {
+    return this.finished || this.open.isEmpty();
+  }
+}
+
+// This class helps iterate through each step of a bidirectional breadth
+// first search over a MazeGrid, growing one frontier from the start and one
+// from the target a level at a time, always the side with the smaller
+// frontier next. Once the frontiers touch, the rest of that level is finished
+// in case it holds a shorter meeting, then the two parent chains are spliced
+// into one path and highlighted. Each side only explores about as far as half
+// the path, so together they cover far less of a large maze than one search.
+class GridBidirectional implements IAnimationHelper {
+  // which side each array belongs to
+  static final int START = 0;
+  static final int END = 1;
+
+  private final MazeGrid grid;
+  private final GridState state;
+  private final int from;
+  private final int to;
+  // the distance of each cell from the start and from the target, -1 if that
+  // side has not reached it
+  private final int[][] distance;
+  // the cell each side reached each cell from, -1 for none
+  private final int[][] parent;
+  private final IntQueue[] frontier;
+  // how many cells are in each side's queue
+  private final int[] queued;
+  // the side being grown and how many cells are left in its level
+  private int side;
+  private int levelLeft;
+  // the shortest meeting found so far, as the cells on each side of it
+  private int best;
+  private int meetStart;
+  private int meetEnd;
+  private boolean finished;
+
+  GridBidirectional(MazeGrid grid, GridState state, int from, int to) {
+    this.grid = grid;
+    this.state = state;
+    this.from = from;
+    this.to = to;
+    this.distance = new int[2][grid.size()];
+    this.parent = new int[2][grid.size()];
+    this.frontier = new IntQueue[] { new IntQueue(), new IntQueue() };
+    this.queued = new int[2];
+    for (int s = START; s <= END; s += 1) {
+      Arrays.fill(this.distance[s], -1);
+      Arrays.fill(this.parent[s], -1);
+    }
+    this.distance[START][from] = 0;
+    this.frontier[START].add(from);
+    this.distance[END][to] = 0;
+    this.frontier[END].add(to);
+    this.queued[START] = 1;
+    this.queued[END] = 1;
+    this.side = START;
+    this.levelLeft = 1;
+    this.best = Integer.MAX_VALUE;
+    this.finished = false;
+  }
+
+  // To expand the next cell of the side being grown, used for animation
+  // EFFECT: visits the cell, queues its new neighbors, and once the level
+  // is done either highlights the path or moves on to the next level
+  public void iterate() {
+    if (this.isFinished()) {
+      return;
+    }
+    int other = 1 - this.side;
+    int cell = this.frontier[this.side].remove();
+    this.queued[this.side] -= 1;
+    this.levelLeft -= 1;
+    if (this.side == START) {
+      this.state.visit(cell);
+    } else {
+      this.state.visitFromEnd(cell);
+    }
+
+    int next = this.distance[this.side][cell] + 1;
+    this.meet(cell, cell, this.distance[this.side][cell]);
+    for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+      if (this.grid.isOpen(cell, dir)) {
+        int neighbor = this.grid.neighbor(cell, dir);
+        if (this.distance[this.side][neighbor] == -1) {
+          this.distance[this.side][neighbor] = next;
+          this.parent[this.side][neighbor] = cell;
+          this.frontier[this.side].add(neighbor);
+          this.queued[this.side] += 1;
+        }
+        this.meet(cell, neighbor, next);
+      }
+    }
+
+    if (this.levelLeft == 0) {
+      if (this.best != Integer.MAX_VALUE) {
+        this.splice();
+        this.finished = true;
+      } else if (this.queued[START] == 0 || this.queued[END] == 0) {
+        // one side has run out of cells, so the sides can never meet
+        this.finished = true;
+      } else {
+        if (this.queued[other] < this.queued[this.side]) {
+          this.side = other;
+        }
+        this.levelLeft = this.queued[this.side];
+      }
+    }
+  }
 
+  // to check if the other side has reached the given cell, next to or the
+  // same as the cell being expanded, which is the given distance from this
+  // side
+  // EFFECT: remembers the meeting if it gives the shortest path so far
+  private void meet(int cell, int reached, int distance) {
+    int other = this.distance[1 - this.side][reached];
+    if (other != -1 && distance + other < this.best) {
+      this.best = distance + other;
+      if (this.side == START) {
+        this.meetStart = cell;
+        this.meetEnd = reached;
+      } else {
+        this.meetStart = reached;
+        this.meetEnd = cell;
+      }
+    }
+  }
+
+  // to join the chain from the start to the meeting and the chain from the
+  // meeting to the target into one path
+  // EFFECT: points every cell on the path at the one before it, from the
+  // start, and highlights the path
+  private void splice() {
+    for (int cell = this.meetStart; cell != -1; cell = this.parent[START][cell]) {
+      this.state.link(cell, this.parent[START][cell]);
+    }
+    int previous = this.meetStart;
+    int cell = this.meetEnd;
+    if (cell == previous) {
+      cell = this.parent[END][cell];
+    }
+    while (cell != -1) {
+      this.state.link(cell, previous);
+      previous = cell;
+      cell = this.parent[END][cell];
+    }
+    this.state.highlight(this.to);
+  }
+
+  // To solve the whole maze at once, returning the length of the shortest
+  // path to the target, or -1 if there is none
+  // EFFECT: visits the explored cells from both sides and highlights the path
+  int solve() {
+    while (!this.isFinished()) {
+      this.iterate();
+    }
+    if (this.best == Integer.MAX_VALUE) {
+      return -1;
+    }
+    return this.best;
+  }
+
+  // To determine if the search has found the path, or there is none
+  public boolean isFinished() {
+    return this.finished;
+  }
 }
 
 // Represents a comparator to sort a list of edges according to weight
@@ -240,8 +923,127 @@ class CompareEdges implements Comparator<Edge> {
   }
 }
 
+// Represents a stable, linear time ordering of edges by weight, used instead
+// of a comparison sort. Edge weights are r.nextInt(1000) scaled by a bias,
+// a small range of ints, so a counting sort over that range is enough, with a
+// radix sort for when a huge bias spreads the weights too far apart
+class EdgeOrder {
+  // the widest range of weights that gets a counting sort
+  static final int MAX_COUNTING_RANGE = 1 << 20;
+
+  // to sort the given edges by weight, keeping edges of equal weight in the
+  // order they were in, like ArrayList.sort with CompareEdges
+  // EFFECT: reorders the given list
+  void sort(ArrayList<Edge> edges) {
+    int[] weights = new int[edges.size()];
+    for (int i = 0; i < weights.length; i += 1) {
+      weights[i] = edges.get(i).getWeight();
+    }
+    int[] order = this.sort(weights);
+    ArrayList<Edge> sorted = new ArrayList<>(edges.size());
+    for (int i : order) {
+      sorted.add(edges.get(i));
+    }
+    for (int i = 0; i < order.length; i += 1) {
+      edges.set(i, sorted.get(i));
+    }
+  }
+
+  // returns the indices of the given weights ordered by weight, with equal
+  // weights kept in index order
+  int[] sort(int[] weights) {
+    int lightest = 0;
+    int heaviest = 0;
+    for (int w : weights) {
+      lightest = Math.min(lightest, w);
+      heaviest = Math.max(heaviest, w);
+    }
+
+    if ((long) heaviest - lightest < Math.max(MAX_COUNTING_RANGE, weights.length)) {
+      return this.countingSort(weights, lightest, heaviest - lightest + 1);
+    }
+    return this.radixSort(weights);
+  }
+
+  // returns the indices of the given weights ordered by a counting sort over
+  // the given range, starting at the lightest weight
+  private int[] countingSort(int[] weights, int lightest, int range) {
+    int[] starts = new int[range + 1];
+    for (int w : weights) {
+      starts[w - lightest + 1] += 1;
+    }
+    for (int i = 1; i < starts.length; i += 1) {
+      starts[i] += starts[i - 1];
+    }
+    int[] order = new int[weights.length];
+    for (int i = 0; i < weights.length; i += 1) {
+      order[starts[weights[i] - lightest]] = i;
+      starts[weights[i] - lightest] += 1;
+    }
+    return order;
+  }
+
+  // returns the indices of the given weights ordered by a radix sort, 16 bits
+  // at a time, flipping the sign bit so negative weights come first
+  private int[] radixSort(int[] weights) {
+    int[] order = new int[weights.length];
+    int[] next = new int[weights.length];
+    for (int i = 0; i < order.length; i += 1) {
+      order[i] = i;
+    }
+    for (int shift = 0; shift < 32; shift += 16) {
+      int[] starts = new int[(1 << 16) + 1];
+      for (int w : weights) {
+        starts[this.digit(w, shift) + 1] += 1;
+      }
+      for (int i = 1; i < starts.length; i += 1) {
+        starts[i] += starts[i - 1];
+      }
+      for (int i : order) {
+        int digit = this.digit(weights[i], shift);
+        next[starts[digit]] = i;
+        starts[digit] += 1;
+      }
+      int[] swap = order;
+      order = next;
+      next = swap;
+    }
+    return order;
+  }
+
+  // returns 16 bits of the given weight, starting at the given shift
+  private int digit(int weight, int shift) {
+    return ((weight ^ Integer.MIN_VALUE) >>> shift) & 0xFFFF;
+  }
+}
+
 // Represents a Utils class that contains useful tools.
 class Utils {
+  // to choose the color of a cell: highlighted takes priority, then visited,
+  // then the heatmap in mode 1, otherwise gray
+  Color cellColor(boolean highlighted, boolean visited, int mode, int distance,
+      int furthestFromOrigin) {
+    return this.cellColor(highlighted, visited, false, mode, distance, furthestFromOrigin);
+  }
+
+  // to pick the color of a cell, where a cell visited by a search from the end
+  // of the maze is told apart from one visited from the start
+  Color cellColor(boolean highlighted, boolean visited, boolean visitedFromEnd, int mode,
+      int distance, int furthestFromOrigin) {
+    if (highlighted) {
+      return new Color(3, 252, 198);
+    } else if (visitedFromEnd) {
+      return new Color(168, 129, 50);
+    } else if (visited) {
+      return new Color(50, 168, 129);
+    } else if (mode == 1) {
+      double scale = (double) (distance) / (double) (furthestFromOrigin);
+      return new Color((int) (255 * scale), 0, (int) (255 * (1 - scale)));
+    } else {
+      return Color.GRAY;
+    }
+  }
+
   // to create edges with a given set of cells, uses a given seed for the
   // randomization,
   // and generates according to input biases where the higher bias ratio favoring
@@ -308,4 +1110,4 @@ class Utils {
 
     return edges;
   }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,8 +1,9 @@
 import java.awt.Color;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import tester.*;
 import javalib.impworld.*;
 import javalib.worldimages.AlignModeX;
@@ -26,14 +27,19 @@ interface ICell {
   void addToList(ICollection<Cell> worklist);
 
   // to return the PosnID for a given cell, this is NECESSARY to connect the
-  // HashMap with the cells
+  // union find with the cells
   Posn getId();
 
   // to edit the distance from the the field edge, used when creating HeatMap
-  // mutates the current distance, and is recursed on all neighbors with increased
+  // mutates the current distance, and spreads it to all neighbors with increased
   // distance
   int updateNeighborDistance(Edge from, int distance);
 
+  // to be reached through the given edge by a distance field, at the given
+  // distance
+  // EFFECT: mutates the current distance and adds this cell to the worklist
+  void reachDistance(Edge through, int distance, ICollection<Cell> worklist);
+
   // to attempt to change color state of a cell, or to highlight it, and recurses
   // onto previous values in order to show the correct path at the end of search
   // algorithms
@@ -59,15 +65,14 @@ class Cell implements ICell {
   private Edge left;
   private Edge right;
   private final Posn id;
-  private final Color color;
   private ICell previouslyAccessed;
   private int distance; // distance from origin, either topLeft or bottomRight
   private boolean visited; // has this cell been visited by a search
   private boolean highlighted; // is the cell part of the highlighted path
+  private Edge reachedThrough; // the edge the last distance field came through
 
   Cell(Posn id) {
     this.id = id;
-    this.color = Color.GRAY;
     this.distance = 0;
     this.visited = false;
     this.highlighted = false;
@@ -108,7 +113,7 @@ class Cell implements ICell {
   }
 
   // to return the PosnID for a given cell, this is NECESSARY to connect the
-  // HashMap with the cells
+  // union find with the cells
   public Posn getId() {
     return this.id;
   }
@@ -118,25 +123,9 @@ class Cell implements ICell {
   public void draw(DrawGraph cameFrom, boolean firstCall, int mode,
       int furthestFromOrigin) {
 
-    Color color;
-
-    // highlighted takes priority
-    if (this.highlighted) {
-      color = new Color(3, 252, 198);
-    }
-    // then visited
-    else if (this.visited) {
-      color = new Color(50, 168, 129);
-    }
-    // then heatmap
-    else if (mode == 1) {
-      double scale = (double) (this.distance) / (double) (furthestFromOrigin);
-      color = new Color((int) (255 * scale), 0, (int) (255 * (1 - scale)));
-    }
-    // then just this color
-    else {
-      color = this.color;
-    }
+    // highlighted takes priority, then visited, then heatmap
+    Color color = new Utils().cellColor(this.highlighted, this.visited, mode,
+        this.distance, furthestFromOrigin);
 
     cameFrom.drawCellRow(this, this.id, this.left, this.right, this.up, this.down,
         color, firstCall,
@@ -235,37 +224,55 @@ class Cell implements ICell {
     return this.updateNeighborDistance(null, 0);
   }
 
-  // to calculate the distance from the current cell to the
-  // calculateDistanceFromCell()
-  // specified cell.
-  // topLeft or bottomRight
-  // EFFECT: mutates current distance to specified distance in field, which is
-  // recursive
-  // on all valid neighbors, increasing in distance according to how far away from
-  // specified cell
-  // returns the furthest distance from the origin
+  // to calculate the distance from the current cell, topLeft or bottomRight,
+  // to every cell that can be reached without going through cameFrom. The
+  // cells are reached in order of distance from a worklist rather than by
+  // recursing down each corridor, so a long corridor can't overflow the stack.
+  // EFFECT: mutates current distance to specified distance in field, and
+  // the distance of all reachable cells, increasing in distance according to
+  // how far away from specified cell
+  // returns one more than the furthest distance from the origin, the distance
+  // of the walls just past the furthest cell
   public int updateNeighborDistance(Edge cameFrom, int distance) {
+    ICollection<Cell> worklist = new Queue<>();
+    this.reachDistance(cameFrom, distance, worklist);
+    int maxDistance = distance;
+    while (!worklist.isEmpty()) {
+      Cell next = worklist.remove();
+      // the worklist holds cells in order of distance
+      maxDistance = next.distance;
+      next.spreadDistance(worklist);
+    }
+    return maxDistance + 1;
+  }
 
+  // to be reached through the given edge by a distance field, at the given
+  // distance
+  // EFFECT: mutates the current distance and the edge it came through, and
+  // adds this cell to the worklist
+  public void reachDistance(Edge through, int distance, ICollection<Cell> worklist) {
     this.distance = distance;
-    int maxDistance = this.distance;
-    if (this.up != cameFrom) {
-      maxDistance = Math.max(this.up.updateNeighborDistance(this, distance + 1),
-          maxDistance);
+    this.reachedThrough = through;
+    worklist.add(this);
+  }
+
+  // to pass this cell's distance on through every edge but the one it came
+  // through
+  // EFFECT: reaches each open neighbor one step further away, adding them to
+  // the worklist
+  void spreadDistance(ICollection<Cell> worklist) {
+    if (this.up != this.reachedThrough) {
+      this.up.spreadDistance(this, this.distance + 1, worklist);
     }
-    if (this.down != cameFrom) {
-      maxDistance = Math.max(this.down.updateNeighborDistance(this, distance + 1),
-          maxDistance);
+    if (this.down != this.reachedThrough) {
+      this.down.spreadDistance(this, this.distance + 1, worklist);
     }
-    if (this.left != cameFrom) {
-      maxDistance = Math.max(this.left.updateNeighborDistance(this, distance + 1),
-          maxDistance);
+    if (this.left != this.reachedThrough) {
+      this.left.spreadDistance(this, this.distance + 1, worklist);
     }
-    if (this.right != cameFrom) {
-      maxDistance = Math.max(this.right.updateNeighborDistance(this, distance + 1),
-          maxDistance);
+    if (this.right != this.reachedThrough) {
+      this.right.spreadDistance(this, this.distance + 1, worklist);
     }
-
-    return maxDistance;
   }
 }
 
@@ -297,6 +304,13 @@ class MtCell implements ICell {
     return distance;
   }
 
+  // to not be reached by a distance field, as you are unable to move onto
+  // empty cells
+  // EFFECT: does nothing
+  public void reachDistance(Edge through, int distance, ICollection<Cell> worklist) {
+    return;
+  }
+
   // to not highlight a empty cell, as you are unable to move onto empty cells,
   // so therefore they will never be included into highlighted solution
   // EFFECT: does nothing, as you are unable to highlight a empty cell
@@ -368,17 +382,14 @@ class Edge {
 
   }
 
-  // Updates all neighbored cells depending if a given edge is walled or not.
-  // if a given edge is walled, stops the recursion and returns the distance from
-  // current spot, which is then recursed on neighbors that are not walled.
-  // After recursion, returns the distance of the current spot in relation to the
-  // accumulated in correspondence in the from cell.
-  int updateNeighborDistance(ICell from, int distance) {
-    if (this.walled) {
-      return distance;
+  // to pass a distance field through this edge from the given cell, unless
+  // the edge is walled, which stops the field
+  // EFFECT: reaches the opposite cell at the given distance, adding it to the
+  // worklist
+  void spreadDistance(ICell from, int distance, ICollection<Cell> worklist) {
+    if (!this.walled) {
+      this.getOpposite(from).reachDistance(this, distance, worklist);
     }
-
-    return this.getOpposite(from).updateNeighborDistance(this, distance);
   }
 
   // to remove the wall on a edge, which represents a edge in between
@@ -388,18 +399,23 @@ class Edge {
     this.walled = false;
   }
 
+  // to return the weight of this edge, used for sorting
+  int getWeight() {
+    return this.weight;
+  }
+
   // to compare the two given edges, returning int value representing
   // how the two measure up
   int compare(Edge other) {
     return this.weight - other.weight;
   }
 
-  // with a given edge, add the ids of from and to into a given hashmap
-  // EFFECT: mutates a given HashMap, replacing any existing cell ids with
-  // the ones in the provided edge
-  void addNodes(HashMap<Posn, Posn> map) {
-    map.put(cell1.getId(), cell1.getId());
-    map.put(cell2.getId(), cell2.getId());
+  // with a given edge, add the ids of from and to into a given union find
+  // EFFECT: mutates the given KruskalsUnionFind, growing its bounds to
+  // include both cells of the provided edge
+  void addNodes(KruskalsUnionFind kuf) {
+    kuf.addNode(cell1.getId());
+    kuf.addNode(cell2.getId());
   }
 
   // to connect the specified edge in the kruskals algorithm
@@ -443,16 +459,39 @@ class Edge {
 
 }
 
-// To represent a graph of a maze
+// To represent a graph of a maze. The maze itself is a MazeGrid and all of
+// the per-cell state lives in primitive arrays, the Cell and Edge classes are
+// the object version of the same maze
 class Graph {
 
-  private Cell topLeft;
-  private Cell bottomRight;
-  private Cell currentlyOn;
+  private MazeGrid grid;
+  // visited, highlighted and previouslyAccessed of every cell
+  private GridState state;
+  // distances from topLeft and bottomRight, for the heatmap, kept until the
+  // walls change
+  private HeatFields heat;
+  // the cells each search has already seen, shared by every search
+  private EpochMarks seen;
+  private int topLeft;
+  private int bottomRight;
+  private int currentlyOn;
   private int width;
   private int height;
   private IAnimationHelper animationHelper;
   private boolean manualMode;
+  // is the maze shifting under the player in manual mode?
+  private boolean shifting;
+  // keeps the maze shifting, once shifting has started
+  private OriginShift shifter;
+  // the images of every cell from the last draw
+  private CellImages images;
+  // how many animation steps each frame runs
+  private AnimationPacer pacer;
+  // the index path queries are answered from, null until the first query,
+  // and the version of the walls it was built for
+  private GridPathIndex pathIndex;
+  private int pathVersion;
+  private int pathIndexBuilds;
   // (EXTRA CREDIT) increase in bias will cause more vertical columns
   private double verticalBias;
   // (EXTRA CREDIT) increase in bias will cause more horizontal
@@ -462,79 +501,139 @@ class Graph {
   Graph(int width, int height, double horizontalBias, double verticalBias) {
     this.verticalBias = verticalBias;
     this.horizontalBias = horizontalBias;
-    this.initialize(width, height, (int) (Math.random() * 1000));
+    this.pacer = AnimationPacer.millis(4);
+    this.initialize(width, height);
+    this.animationHelper = new GridKruskal(this.grid, this.randomWeights());
   }
 
-  // test constructor, which takes in a seed for predictive randomness
+  // test constructor, which takes in a seed for predictive randomness, and
+  // weighs edges exactly like Utils.createEdges, animating one step per frame
   Graph(int width, int height, int seed, double horizontalBias, double verticalBias) {
     this.verticalBias = horizontalBias;
     this.horizontalBias = verticalBias;
-    this.initialize(width, height, seed);
+    this.pacer = AnimationPacer.oneStep();
+    this.initialize(width, height);
+    this.animationHelper = new GridKruskal(this.grid, new RandomWeights(seed,
+        this.verticalBias, this.horizontalBias));
   }
 
-  // to create a random maze generation with a given height, width and random seed
-  // EFFECT: mutates all fields in the graph, and generates a random maze,
-  // excluding the
-  // vertical and horizontal biases, which are specified in the constructor
-  void initialize(int width, int height, int seed) {
-    if (width > 100 || height > 60) {
-      throw new IllegalArgumentException("Maze is too big no goood");
+  // to create a maze with a given height and width, with every wall up,
+  // ready for a generator to knock them down
+  // EFFECT: mutates all fields in the graph except the animation helper and
+  // the vertical and horizontal biases, which are specified in the constructor
+  void initialize(int width, int height) {
+    // every cell needs at least one pixel of the window, bigger mazes can be
+    // generated and solved without drawing them using a MazeGrid
+    if (width > 1500 || height > 750) {
+      throw new IllegalArgumentException("Maze is too big to draw, use a MazeGrid");
     }
 
-    // This nested for loop generates all of the possible cells given
-    // the width and height
-    ArrayList<ArrayList<Cell>> cells = new ArrayList<>();
-
-    // for each row in the height, create the cells in that row
-    for (int rowIndex = 0; rowIndex < height; rowIndex += 1) {
-
-      cells.add(new ArrayList<>());
-      // for each column in that row, create a new cell
-      for (int colIndex = 0; colIndex < width; colIndex += 1) {
-        cells.get(rowIndex).add(new Cell(new Posn(colIndex, rowIndex)));
-      }
-    }
+    // every cell starts with all four walls up
+    this.grid = new MazeGrid(width, height);
+    this.state = new GridState(this.grid.size());
+    this.heat = new HeatFields(this.grid);
+    this.seen = new EpochMarks(this.grid.size());
+    this.images = new CellImages(this.grid.size());
+    this.pathIndex = null;
     // set the top left (starting cell)
-    this.topLeft = cells.get(0).get(0);
+    this.topLeft = 0;
     // set the bottom right (ending cell)
-    this.bottomRight = cells.get(cells.size() - 1).get(cells.get(0).size() - 1);
+    this.bottomRight = this.grid.size() - 1;
     // initializes current cell as topLeft
     this.currentlyOn = this.topLeft;
 
-    // creates the edges
-    ArrayList<Edge> edges = new Utils().createEdges(cells, seed, this.verticalBias,
-        this.horizontalBias);
-
-    // create spanning tree
-    KruskalsUnionFind kuf = new KruskalsUnionFind(edges);
-    kuf.putEdges();
-    // animation helper to help with states in the world class
-    this.animationHelper = kuf;
     this.height = height;
     this.width = width;
 
     this.manualMode = false;
+    this.shifting = false;
   }
 
   // to reinitialize the graph representation with the same height and width
   // EFFECT: mutates all of the fields to a new random maze (excluding biases)
   void reset() {
-    this.initialize(this.width, this.height, (int) (Math.random() * 1000));
+    this.initialize(this.width, this.height);
+    // create spanning tree
+    // animation helper to help with states in the world class
+    this.animationHelper = new GridKruskal(this.grid, this.randomWeights());
+  }
+
+  // to reinitialize the graph with a new random maze of the same size, grown
+  // from the top left by Prim's algorithm
+  // EFFECT: mutates all of the fields to a new maze (excluding biases)
+  void prims() {
+    this.initialize(this.width, this.height);
+    this.animationHelper = new GridPrim(this.grid, this.randomWeights());
+  }
+
+  // to reinitialize the graph with a new random maze of the same size, where
+  // every maze is as likely, made by Wilson's algorithm
+  // EFFECT: mutates all of the fields to a new maze (excluding biases)
+  void wilsons() {
+    this.initialize(this.width, this.height);
+    this.animationHelper = new GridWilson(this.grid, new Random().nextLong());
+  }
+
+  // to reinitialize the graph with a new random maze of the same size, made a
+  // row at a time by the Sidewinder algorithm, the biases setting the chances
+  // of opening right or down
+  // EFFECT: mutates all of the fields to a new maze (excluding biases)
+  void sidewinder() {
+    this.initialize(this.width, this.height);
+    this.animationHelper = new GridSidewinder(this.grid, new Random().nextLong(),
+        this.verticalBias, this.horizontalBias);
+  }
+
+  // to reinitialize the graph with a new random maze of the same size, where
+  // every cell opens right or down, the biases setting the chances of each
+  // EFFECT: mutates all of the fields to a new maze (excluding biases)
+  void binaryTree() {
+    this.initialize(this.width, this.height);
+    this.animationHelper = new GridBinaryTree(this.grid, new Random().nextLong(),
+        this.verticalBias, this.horizontalBias);
+  }
+
+  // to reinitialize the graph with a new random maze of the same size, carved
+  // in long corridors by the recursive backtracker
+  // EFFECT: mutates all of the fields to a new maze (excluding biases)
+  void backtracker() {
+    this.initialize(this.width, this.height);
+    this.animationHelper = new GridBacktracker(this.grid, new Random().nextLong());
+  }
+
+  // to reinitialize the graph with a new random maze of the same size, made by
+  // splitting one open room with walls, the biases steering which way each
+  // wall goes
+  // EFFECT: mutates all of the fields to a new maze (excluding biases)
+  void division() {
+    this.initialize(this.width, this.height);
+    this.animationHelper = new GridDivision(this.grid, new Random().nextLong(),
+        this.verticalBias, this.horizontalBias);
+  }
+
+  // returns new edge weights from a random 64-bit seed, using the biases
+  private IEdgeWeights randomWeights() {
+    return new HashedWeights(new Random().nextLong(), this.verticalBias,
+        this.horizontalBias);
   }
 
   // to draw the graph, given a specific color mode (EXTRA CREDIT), will return
   // a complete scene of a graph turned into a maze
   WorldScene draw(int mode) {
     if (!this.animationHelper.isFinished()) {
-      this.animationHelper.iterate();
+      this.pacer.step(this.animationHelper);
+    } else if (this.shifting && this.manualMode) {
+      // one shift changes at most two walls, so only those cells are rebuilt
+      this.shifter.shift();
     }
 
     // optimal cellDimensions based on the width and height bounds of the window
     int cellDimensions = Math.min((int) (1500 / this.width), (int) (750 / this.height));
 
     WorldScene scene = new WorldScene(cellDimensions * this.width, cellDimensions * this.height);
-    DrawGraph drawGraph = new DrawGraph(scene, cellDimensions, this.topLeft, this.bottomRight);
-    drawGraph.drawCells(mode);
+    DrawGrid drawGrid = new DrawGrid(scene, cellDimensions, this.grid, this.state, this.heat,
+        this.images);
+    drawGrid.drawCells(mode);
     return scene;
   }
 
@@ -543,7 +642,8 @@ class Graph {
   // breadth first search
   void bfs() {
     if (this.animationHelper.isFinished() && !this.manualMode) {
-      this.animationHelper = new SearchHelper(this.topLeft, this.bottomRight, new Queue<Cell>());
+      this.animationHelper = new GridSearchHelper(this.grid, this.state, this.topLeft,
+          this.bottomRight, new IntQueue(), this.seen);
     }
   }
 
@@ -552,41 +652,115 @@ class Graph {
   // depth first search
   void dfs() {
     if (this.animationHelper.isFinished() && !this.manualMode) {
-      this.animationHelper = new SearchHelper(this.topLeft, this.bottomRight, new Stack<Cell>());
+      this.animationHelper = new GridSearchHelper(this.grid, this.state, this.topLeft,
+          this.bottomRight, new IntStack(), this.seen);
+    }
+  }
+
+  // to represent the A* search algorithm, heading towards the bottom right
+  // EFFECT: mutates the given graph visitation fields to represent an A*
+  // search
+  void aStar() {
+    if (this.animationHelper.isFinished() && !this.manualMode) {
+      this.animationHelper = new GridAStar(this.grid, this.state, this.topLeft,
+          this.bottomRight);
+    }
+  }
+
+  // to represent a breadth first search from both ends of the maze at once
+  // EFFECT: mutates the given graph visitation fields to represent a
+  // bidirectional breadth first search
+  void bidirectional() {
+    if (this.animationHelper.isFinished() && !this.manualMode) {
+      this.animationHelper = new GridBidirectional(this.grid, this.state, this.topLeft,
+          this.bottomRight);
     }
   }
 
+  // to fill in the dead ends of the maze until only the path from the top
+  // left to the bottom right is left
+  // EFFECT: mutates the given graph visitation fields to show each sealed
+  // cell as visited, then highlights the path
+  void deadEndFill() {
+    if (this.animationHelper.isFinished() && !this.manualMode) {
+      this.animationHelper = new DeadEndFill(this.grid, this.state, this.topLeft,
+          this.bottomRight);
+    }
+  }
+
+  // to find the paths between many pairs of cells of the finished maze at
+  // once, without searching or touching the drawn state, where the start and
+  // goal of query i are pairs[2 * i] and pairs[2 * i + 1]
+  // EFFECT: builds the path index again if the walls have changed since it
+  // was last built
+  GridPathBatch queryPaths(int[] pairs) {
+    if (!this.animationHelper.isFinished()) {
+      throw new IllegalStateException("The maze is not finished yet");
+    }
+    int version = this.grid.version();
+    if (this.pathIndex == null || this.pathVersion != version) {
+      this.pathIndex = new GridPathIndex(this.grid);
+      this.pathVersion = version;
+      this.pathIndexBuilds += 1;
+    }
+    return new GridPathBatch(this.pathIndex, pairs);
+  }
+
+  // returns how many times the path index has been built
+  int pathIndexBuilds() {
+    return this.pathIndexBuilds;
+  }
+
   // to start the manual mode of a Graph representation,
   // EFFECT: mutates the topLeft cell, indicating the maze starting point visually
   void startManualMode() {
-    this.topLeft.highlight();
+    this.state.highlight(this.topLeft);
     this.manualMode = true;
   }
 
+  // to start the manual mode of a Graph representation in a maze that keeps
+  // changing under the player, a wall or two every tick, until they reach the
+  // bottom right cell
+  // EFFECT: mutates the topLeft cell, indicating the maze starting point
+  // visually, and starts shifting the walls
+  void startShiftingMode() {
+    if (this.animationHelper.isFinished() && !this.manualMode) {
+      this.shifter = new OriginShift(this.grid, this.bottomRight, new Random().nextLong());
+      this.shifting = true;
+      this.startManualMode();
+    }
+  }
+
   // to change graph in accordance to movement input in manual mode
   // EFFECT: depending if graph is on manual mode, mutates visitation and
   // highlighting on cells for actions of a player moving around the maze.
   void move(String direction) {
     if (this.manualMode) {
       if (direction.equals("up")) {
-        this.currentlyOn = this.currentlyOn.moveUp();
+        this.currentlyOn = this.state.move(this.grid, this.currentlyOn, MazeGrid.UP);
       } else if (direction.equals("down")) {
-        this.currentlyOn = this.currentlyOn.moveDown();
+        this.currentlyOn = this.state.move(this.grid, this.currentlyOn, MazeGrid.DOWN);
 
       } else if (direction.equals("left")) {
-        this.currentlyOn = this.currentlyOn.moveLeft();
+        this.currentlyOn = this.state.move(this.grid, this.currentlyOn, MazeGrid.LEFT);
 
       } else if (direction.equals("right")) {
-        this.currentlyOn = this.currentlyOn.moveRight();
+        this.currentlyOn = this.state.move(this.grid, this.currentlyOn, MazeGrid.RIGHT);
       }
 
       if (this.currentlyOn == this.bottomRight) {
-        this.currentlyOn.highlight();
+        this.state.highlight(this.currentlyOn);
         this.manualMode = false;
       }
     }
   }
 
+  // to change how many animation steps each frame runs
+  // EFFECT: mutates the pacer
+  void setPacer(AnimationPacer pacer) {
+    this.pacer = pacer;
+  }
+
   // to skip a given animation sequence
   // EFFECT: mutates the animationHelper finished field to skip all
   // tick movements in a search sequence.
@@ -624,9 +798,21 @@ class MazeGame extends World {
     } else if (key.equals("b")) {
       // Breadth First Search
       this.graph.bfs();
+    } else if (key.equals("a")) {
+      // A* Search
+      this.graph.aStar();
+    } else if (key.equals("e")) {
+      // Breadth First Search from both ends
+      this.graph.bidirectional();
+    } else if (key.equals("f")) {
+      // Fill in the dead ends
+      this.graph.deadEndFill();
     } else if (key.equals("m")) {
       // Start Manual Mode
       this.graph.startManualMode();
+    } else if (key.equals("o")) {
+      // Start Manual Mode in a shifting maze
+      this.graph.startShiftingMode();
     }
     // Change Color Mode,
     // 0 for normal maze,
@@ -640,6 +826,18 @@ class MazeGame extends World {
       }
     } else if (key.equals("r")) {
       this.graph.reset(); // Reset graph, recreating a random maze
+    } else if (key.equals("p")) {
+      this.graph.prims(); // Recreate a random maze with Prim's algorithm
+    } else if (key.equals("w")) {
+      this.graph.wilsons(); // Recreate a uniformly random maze
+    } else if (key.equals("i")) {
+      this.graph.sidewinder(); // Recreate a random maze with Sidewinder
+    } else if (key.equals("t")) {
+      this.graph.binaryTree(); // Recreate a random binary tree maze
+    } else if (key.equals("k")) {
+      this.graph.backtracker(); // Recreate a random maze of long corridors
+    } else if (key.equals("v")) {
+      this.graph.division(); // Recreate a random maze by recursive division
     } else if (key.equals("s")) {
       this.graph.skipAnimation(); // Skip current animation
     } else {
@@ -1106,7 +1304,7 @@ class Examples {
     init();
     initEdges();
     KruskalsUnionFind kuf = new KruskalsUnionFind(edges);
-    // puts all of the edges in the hashmap
+    // puts all of the cells in the union find
     kuf.putEdges();
     // testing put edges befor any iteration, every cell should be mapped to itself
     t.checkExpect(kuf.find(topLeft.getId()), topLeft.getId());
@@ -1166,31 +1364,34 @@ class Examples {
     t.checkExpect(kuf.find(bottomMiddle.getId()), topRight.getId());
 
     // removes the edge between topLeft and middleLeft
+    // this is the eighth union, so the nine cells form one tree and the
+    // generation finishes early. topLeft's tree was shallower, so it goes
+    // under topRight (union by rank)
     kuf.iterate();
-    t.checkExpect(kuf.isFinished(), false);
+    t.checkExpect(kuf.isFinished(), true);
 
-    t.checkExpect(kuf.find(topLeft.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(middleLeft.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(topRight.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(bottomLeft.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(bottomMiddle.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(bottomRight.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(topMiddle.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(middleMiddle.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(middleRight.getId()), topLeft.getId());
+    t.checkExpect(kuf.find(topLeft.getId()), topRight.getId());
+    t.checkExpect(kuf.find(middleLeft.getId()), topRight.getId());
+    t.checkExpect(kuf.find(topRight.getId()), topRight.getId());
+    t.checkExpect(kuf.find(bottomLeft.getId()), topRight.getId());
+    t.checkExpect(kuf.find(bottomMiddle.getId()), topRight.getId());
+    t.checkExpect(kuf.find(bottomRight.getId()), topRight.getId());
+    t.checkExpect(kuf.find(topMiddle.getId()), topRight.getId());
+    t.checkExpect(kuf.find(middleMiddle.getId()), topRight.getId());
+    t.checkExpect(kuf.find(middleRight.getId()), topRight.getId());
 
     // removing the last 2 does nothing
     kuf.iterate();
     kuf.iterate();
-    t.checkExpect(kuf.find(topLeft.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(middleLeft.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(topRight.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(bottomLeft.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(bottomMiddle.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(bottomRight.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(topMiddle.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(middleMiddle.getId()), topLeft.getId());
-    t.checkExpect(kuf.find(middleRight.getId()), topLeft.getId());
+    t.checkExpect(kuf.find(topLeft.getId()), topRight.getId());
+    t.checkExpect(kuf.find(middleLeft.getId()), topRight.getId());
+    t.checkExpect(kuf.find(topRight.getId()), topRight.getId());
+    t.checkExpect(kuf.find(bottomLeft.getId()), topRight.getId());
+    t.checkExpect(kuf.find(bottomMiddle.getId()), topRight.getId());
+    t.checkExpect(kuf.find(bottomRight.getId()), topRight.getId());
+    t.checkExpect(kuf.find(topMiddle.getId()), topRight.getId());
+    t.checkExpect(kuf.find(middleMiddle.getId()), topRight.getId());
+    t.checkExpect(kuf.find(middleRight.getId()), topRight.getId());
 
     // should now be finished, as there are no edges left
     t.checkExpect(kuf.isFinished(), true);
@@ -1200,7 +1401,7 @@ class Examples {
     this.edges.sort(new CompareEdges());
     // testing connectCells, which tries to connect the two cells of an edge
     kuf = new KruskalsUnionFind(edges);
-    // puts all of the edges in the hashmap
+    // puts all of the cells in the union find
     kuf.putEdges();
     // testing find befor any iteration, every cell should be mapped to itself
     t.checkExpect(kuf.find(topLeft.getId()), topLeft.getId());
@@ -1245,7 +1446,7 @@ class Examples {
     initEdges();
 
     ICollection<Cell> stack = new Stack<>();
-    SearchHelper sh = new SearchHelper(topLeft, bottomRight, stack);
+    SearchHelper sh = new SearchHelper(topLeft, bottomRight, stack, new EpochMarks(9), 3);
     // connecting the cells, so the search works
     KruskalsUnionFind kuf = new KruskalsUnionFind(edges);
     while (!kuf.isFinished()) {
@@ -1498,7 +1699,7 @@ class Examples {
     initEdges();
 
     ICollection<Cell> queue = new Queue<>();
-    SearchHelper sh = new SearchHelper(topLeft, bottomRight, queue);
+    SearchHelper sh = new SearchHelper(topLeft, bottomRight, queue, new EpochMarks(9), 3);
     // connecting the cells, so the search works
     KruskalsUnionFind kuf = new KruskalsUnionFind(edges);
     while (!kuf.isFinished()) {
@@ -1515,7 +1716,7 @@ class Examples {
     while (!kuf.isFinished()) {
       kuf.iterate();
     }
-    sh = new SearchHelper(topLeft, bottomRight, queue);
+    sh = new SearchHelper(topLeft, bottomRight, queue, new EpochMarks(9), 3);
 
     // then visits the middle left and adds it
     sh.iterate();
@@ -1528,7 +1729,7 @@ class Examples {
     while (!kuf.isFinished()) {
       kuf.iterate();
     }
-    sh = new SearchHelper(topLeft, bottomRight, queue);
+    sh = new SearchHelper(topLeft, bottomRight, queue, new EpochMarks(9), 3);
     sh.iterate();
 
     // then visits bottom left and adds it
@@ -1542,7 +1743,7 @@ class Examples {
     while (!kuf.isFinished()) {
       kuf.iterate();
     }
-    sh = new SearchHelper(topLeft, bottomRight, queue);
+    sh = new SearchHelper(topLeft, bottomRight, queue, new EpochMarks(9), 3);
     sh.iterate();
     sh.iterate();
 
@@ -1557,7 +1758,7 @@ class Examples {
     while (!kuf.isFinished()) {
       kuf.iterate();
     }
-    sh = new SearchHelper(topLeft, bottomRight, queue);
+    sh = new SearchHelper(topLeft, bottomRight, queue, new EpochMarks(9), 3);
     sh.iterate();
     sh.iterate();
     sh.iterate();
@@ -1574,7 +1775,7 @@ class Examples {
     while (!kuf.isFinished()) {
       kuf.iterate();
     }
-    sh = new SearchHelper(topLeft, bottomRight, queue);
+    sh = new SearchHelper(topLeft, bottomRight, queue, new EpochMarks(9), 3);
     sh.iterate();
     sh.iterate();
     sh.iterate();
@@ -2166,6 +2367,18 @@ class Examples {
 
     // testing on bottomRight
     t.checkExpect(bottomRight.updateNeighborDistance(null, 0), 6);
+
+    // a corridor far longer than the stack is deep is measured all the same
+    ArrayList<ArrayList<Cell>> corridor = new ArrayList<>();
+    corridor.add(new ArrayList<>());
+    for (int x = 0; x < 100000; x += 1) {
+      corridor.get(0).add(new Cell(new Posn(x, 0)));
+    }
+    for (Edge edge : new Utils().createEdges(corridor, 1, 1, 1)) {
+      edge.breakWall();
+    }
+    t.checkExpect(corridor.get(0).get(0).calculateDistanceFromThisCell(), 100000);
+    t.checkExpect(corridor.get(0).get(50000).calculateDistanceFromThisCell(), 50001);
   }
 
   // testing updateCellHistory to create a path between topLeft and bottomRight
@@ -2792,7 +3005,7 @@ class Examples {
       kuf.iterate();
     }
 
-    SearchHelper bfs = new SearchHelper(topLeft, bottomRight, new Queue<>());
+    SearchHelper bfs = new SearchHelper(topLeft, bottomRight, new Queue<>(), new EpochMarks(9), 3);
     while (!bfs.isFinished()) {
       bfs.iterate();
     }
@@ -2817,7 +3030,7 @@ class Examples {
       kuf.iterate();
     }
 
-    SearchHelper dfs = new SearchHelper(topLeft, bottomRight, new Stack<>());
+    SearchHelper dfs = new SearchHelper(topLeft, bottomRight, new Stack<>(), new EpochMarks(9), 3);
     while (!dfs.isFinished()) {
       dfs.iterate();
     }
@@ -2864,7 +3077,7 @@ class Examples {
     t.checkExpect(graph.draw(0), scene);
 
     // testing every step of bfs
-    SearchHelper bfs = new SearchHelper(topLeft, bottomRight, new Queue<>());
+    SearchHelper bfs = new SearchHelper(topLeft, bottomRight, new Queue<>(), new EpochMarks(9), 3);
     graph.bfs();
     while (!bfs.isFinished()) {
       bfs.iterate();
@@ -2896,7 +3109,7 @@ class Examples {
     new DrawGraph(scene, 250, topLeft, bottomRight).drawCells(2);
     t.checkExpect(graph.draw(2), scene);
 
-    SearchHelper dfs = new SearchHelper(topLeft, bottomRight, new Stack<>());
+    SearchHelper dfs = new SearchHelper(topLeft, bottomRight, new Stack<>(), new EpochMarks(9), 3);
     while (!dfs.isFinished()) {
       dfs.iterate();
     }
@@ -2923,7 +3136,7 @@ class Examples {
     }
     graph.skipAnimation();
 
-    SearchHelper bfs = new SearchHelper(topLeft, bottomRight, new Queue<>());
+    SearchHelper bfs = new SearchHelper(topLeft, bottomRight, new Queue<>(), new EpochMarks(9), 3);
     while (!bfs.isFinished()) {
       bfs.iterate();
     }
@@ -2981,7 +3194,7 @@ class Examples {
     // starting the dfs animation then resetting it
     game.onKeyEvent("d");
     game.onKeyEvent("s");
-    SearchHelper dfs = new SearchHelper(topLeft, bottomRight, new Stack<>());
+    SearchHelper dfs = new SearchHelper(topLeft, bottomRight, new Stack<>(), new EpochMarks(9), 3);
     while (!dfs.isFinished()) {
       dfs.iterate();
     }
@@ -2999,7 +3212,7 @@ class Examples {
     // trying a bfs
     game.onKeyEvent("b");
     game.onKeyEvent("s");
-    SearchHelper bfs = new SearchHelper(topLeft, bottomRight, new Queue<>());
+    SearchHelper bfs = new SearchHelper(topLeft, bottomRight, new Queue<>(), new EpochMarks(9), 3);
     while (!bfs.isFinished()) {
       bfs.iterate();
     }
@@ -3059,6 +3272,1308 @@ class Examples {
 
   }
 
+  // testing the bitset maze and its helpers
+  void testMazeGrid(Tester t) {
+    MazeGrid grid = new MazeGrid(3, 2);
+    t.checkExpect(grid.size(), 6);
+    t.checkExpect(grid.index(2, 1), 5);
+    t.checkExpect(grid.x(5), 2);
+    t.checkExpect(grid.y(5), 1);
+
+    // neighbors ignore walls but not the outside of the maze
+    t.checkExpect(grid.neighbor(0, MazeGrid.UP), -1);
+    t.checkExpect(grid.neighbor(0, MazeGrid.LEFT), -1);
+    t.checkExpect(grid.neighbor(0, MazeGrid.DOWN), 3);
+    t.checkExpect(grid.neighbor(2, MazeGrid.RIGHT), -1);
+    t.checkExpect(grid.neighbor(4, MazeGrid.LEFT), 3);
+    t.checkExpect(grid.neighbor(4, MazeGrid.DOWN), -1);
+
+    // every wall starts up
+    t.checkExpect(grid.isOpen(0, MazeGrid.RIGHT), false);
+    t.checkExpect(grid.move(0, MazeGrid.RIGHT), 0);
+
+    // breaking a wall opens it from both sides
+    grid.breakWall(0, MazeGrid.RIGHT);
+    t.checkExpect(grid.isOpen(0, MazeGrid.RIGHT), true);
+    t.checkExpect(grid.isOpen(1, MazeGrid.LEFT), true);
+    t.checkExpect(grid.move(1, MazeGrid.LEFT), 0);
+    grid.breakWall(4, MazeGrid.UP);
+    t.checkExpect(grid.isOpen(1, MazeGrid.DOWN), true);
+    // the outside of the maze can't be broken
+    grid.breakWall(0, MazeGrid.UP);
+    t.checkExpect(grid.isOpen(0, MazeGrid.UP), false);
+
+    // edges are numbered in the order Utils.createEdges makes them
+    t.checkExpect(grid.edgeCount(), 7);
+    t.checkExpect(grid.edgeBit(0), grid.wallBit(0, MazeGrid.RIGHT));
+    t.checkExpect(grid.edgeBit(1), grid.wallBit(1, MazeGrid.RIGHT));
+    t.checkExpect(grid.edgeBit(2), grid.wallBit(3, MazeGrid.UP));
+    t.checkExpect(grid.edgeBit(3), grid.wallBit(3, MazeGrid.RIGHT));
+    t.checkExpect(grid.edgeBit(4), grid.wallBit(4, MazeGrid.UP));
+    t.checkExpect(grid.edgeBit(5), grid.wallBit(4, MazeGrid.RIGHT));
+    t.checkExpect(grid.edgeBit(6), grid.wallBit(5, MazeGrid.UP));
+    t.checkExpect(grid.bitEdge(grid.edgeBit(0)), 0);
+    t.checkExpect(grid.bitEdge(grid.edgeBit(2)), 2);
+    t.checkExpect(grid.bitEdge(grid.edgeBit(5)), 5);
+    t.checkExpect(grid.bitEdge(grid.edgeBit(6)), 6);
+    t.checkExpect(grid.bitCell1(grid.edgeBit(4)), 1);
+    t.checkExpect(grid.bitCell2(grid.edgeBit(4)), 4);
+  }
+
+  // testing that the grid generator makes the same maze as KruskalsUnionFind
+  void testGridKruskal(Tester t) {
+    MazeGrid grid = new MazeGrid(3, 3);
+    GridKruskal gk = new GridKruskal(grid, 100, 1, 1);
+    // the first edge joins topRight and middleRight
+    gk.iterate();
+    t.checkExpect(grid.isOpen(2, MazeGrid.DOWN), true);
+    t.checkExpect(grid.isOpen(1, MazeGrid.RIGHT), false);
+
+    int steps = 1;
+    while (!gk.isFinished()) {
+      gk.iterate();
+      steps += 1;
+    }
+    // the same ten steps as testKruskalsUnionFind
+    t.checkExpect(steps, 10);
+    t.checkExpect(grid.isOpen(1, MazeGrid.RIGHT), true);
+    t.checkExpect(grid.isOpen(3, MazeGrid.DOWN), true);
+    t.checkExpect(grid.isOpen(1, MazeGrid.DOWN), true);
+    t.checkExpect(grid.isOpen(7, MazeGrid.RIGHT), true);
+    t.checkExpect(grid.isOpen(4, MazeGrid.DOWN), true);
+    t.checkExpect(grid.isOpen(6, MazeGrid.RIGHT), true);
+    t.checkExpect(grid.isOpen(0, MazeGrid.DOWN), true);
+    t.checkExpect(grid.isOpen(0, MazeGrid.RIGHT), false);
+    t.checkExpect(grid.isOpen(3, MazeGrid.RIGHT), false);
+    t.checkExpect(grid.isOpen(4, MazeGrid.RIGHT), false);
+    t.checkExpect(grid.isOpen(5, MazeGrid.DOWN), false);
+  }
+
+  // testing breadth first search over a grid
+  void testGridSearch(Tester t) {
+    MazeGrid grid = new MazeGrid(3, 3);
+    GridSearch search = new GridSearch(grid);
+    // nothing is reachable before the maze is generated
+    t.checkExpect(search.distancesFrom(0), 0);
+    t.checkExpect(search.distanceTo(8), -1);
+    t.checkExpect(search.pathTo(8), new int[0]);
+
+    GridKruskal gk = new GridKruskal(grid, 100, 1, 1);
+    while (!gk.isFinished()) {
+      gk.iterate();
+    }
+    // the same distances as testCalculateDistance
+    t.checkExpect(search.distancesFrom(0), 7);
+    t.checkExpect(search.distanceTo(3), 1);
+    t.checkExpect(search.distanceTo(7), 3);
+    t.checkExpect(search.distanceTo(8), 4);
+    t.checkExpect(search.distanceTo(5), 7);
+    t.checkExpect(search.pathTo(8), new int[] {0, 3, 6, 7, 8});
+    t.checkExpect(search.pathTo(0), new int[] {0});
+
+    t.checkExpect(search.distancesFrom(8), 5);
+    t.checkExpect(search.pathTo(0), new int[] {8, 7, 6, 3, 0});
+    t.checkExpect(search.parent(0), 3);
+    t.checkExpect(search.parent(8), -1);
+  }
+
+  // testing the linear time edge sorts
+  void testEdgeOrder(Tester t) {
+    EdgeOrder order = new EdgeOrder();
+    // ties keep their index order
+    t.checkExpect(order.sort(new int[] {5, 1, 5, 0, 1}), new int[] {3, 1, 4, 0, 2});
+    t.checkExpect(order.sort(new int[] {-2, 3, -7}), new int[] {2, 0, 1});
+    t.checkExpect(order.sort(new int[0]), new int[0]);
+    // weights too far apart for a counting sort use the radix sort
+    t.checkExpect(order.sort(new int[] {2000000000, -2000000000, 70000, 3, 70000}),
+        new int[] {1, 3, 2, 4, 0});
+
+    // sorting a list of edges gives the same order as CompareEdges
+    this.init();
+    this.initEdges();
+    ArrayList<Edge> byComparator = new ArrayList<>(this.edges);
+    byComparator.sort(new CompareEdges());
+    order.sort(this.edges);
+    t.checkExpect(this.edges, byComparator);
+
+    // a huge bias takes the radix sort path in GridKruskal, and scaling every
+    // weight the same way gives the same maze
+    MazeGrid grid = new MazeGrid(3, 3);
+    GridKruskal gk = new GridKruskal(grid, 100, 1000000, 1000000);
+    while (!gk.isFinished()) {
+      gk.iterate();
+    }
+    t.checkExpect(grid.isOpen(2, MazeGrid.DOWN), true);
+    t.checkExpect(grid.isOpen(0, MazeGrid.DOWN), true);
+    t.checkExpect(grid.isOpen(0, MazeGrid.RIGHT), false);
+    t.checkExpect(grid.isOpen(5, MazeGrid.DOWN), false);
+  }
+
+  // testing that Boruvka's algorithm builds the same maze as Kruskal's
+  void testGridBoruvka(Tester t) {
+    MazeGrid grid = new MazeGrid(3, 3);
+    GridBoruvka boruvka = new GridBoruvka(grid, 100, 1, 1);
+    t.checkExpect(boruvka.isFinished(), false);
+    // the first round joins every cell to its cheapest neighbor, topRight and
+    // middleRight share the lightest edge
+    boruvka.iterate();
+    t.checkExpect(grid.isOpen(2, MazeGrid.DOWN), true);
+    t.checkExpect(grid.isOpen(1, MazeGrid.RIGHT), true);
+    while (!boruvka.isFinished()) {
+      boruvka.iterate();
+    }
+    t.checkExpect(grid.isOpen(0, MazeGrid.DOWN), true);
+    t.checkExpect(grid.isOpen(6, MazeGrid.RIGHT), true);
+    t.checkExpect(grid.isOpen(0, MazeGrid.RIGHT), false);
+    t.checkExpect(grid.isOpen(5, MazeGrid.DOWN), false);
+
+    // a bigger biased maze matches wall for wall
+    MazeGrid byBoruvka = new MazeGrid(30, 20);
+    boruvka = new GridBoruvka(byBoruvka, 7, 1, 3);
+    while (!boruvka.isFinished()) {
+      boruvka.iterate();
+    }
+    MazeGrid byKruskal = new MazeGrid(30, 20);
+    GridKruskal gk = new GridKruskal(byKruskal, 7, 1, 3);
+    while (!gk.isFinished()) {
+      gk.iterate();
+    }
+    t.checkExpect(this.wallDifferences(byKruskal, byBoruvka), 0);
+    t.checkExpect(new GridSearch(byBoruvka).distancesFrom(0) > 0, true);
+  }
+
+  // testing the tiled generator
+  void testGridTiles(Tester t) {
+    MazeGrid grid = new MazeGrid(10, 7);
+    GridTiles tiles = new GridTiles(grid, 5, 1, 1, 4);
+    t.checkExpect(tiles.isFinished(), false);
+    // the first step builds every tile, which leaves the crossing walls up
+    tiles.iterate();
+    t.checkExpect(grid.isOpen(3, MazeGrid.RIGHT), false);
+    t.checkExpect(grid.isOpen(grid.index(0, 3), MazeGrid.DOWN), false);
+    tiles.iterate();
+    t.checkExpect(tiles.isFinished(), true);
+
+    // the maze is a spanning tree, every cell can be reached and there are
+    // exactly size - 1 openings
+    t.checkExpect(this.isSpanningTree(grid), true);
+
+    // one thread gives the same maze as every thread
+    MazeGrid oneThread = new MazeGrid(10, 7);
+    ForkJoinPool pool = new ForkJoinPool(1);
+    GridTiles single = new GridTiles(oneThread, new HashedWeights(5, 1, 1), 4, pool);
+    while (!single.isFinished()) {
+      single.iterate();
+    }
+    pool.shutdown();
+    t.checkExpect(this.wallDifferences(grid, oneThread), 0);
+  }
+
+  // testing the edge weight sources
+  void testEdgeWeights(Tester t) {
+    MazeGrid grid = new MazeGrid(3, 3);
+    // random weights are the ones Utils.createEdges draws, in creation order
+    this.init();
+    this.initEdges();
+    IEdgeWeights random = new RandomWeights(100, 1, 1);
+    t.checkExpect(random.isRandomAccess(), false);
+    t.checkExpect(random.weight(grid, 0), this.edges.get(0).getWeight());
+    t.checkExpect(random.weight(grid, 1), this.edges.get(1).getWeight());
+    // going back to edge 0 starts over
+    t.checkExpect(random.weight(grid, 0), this.edges.get(0).getWeight());
+    t.checkException(
+        new IllegalStateException("Random weights must be drawn in creation order"),
+        random, "weight", grid, 5);
+    t.checkExpect(random.heaviest(), 999);
+
+    // stored weights can be read in any order
+    IEdgeWeights stored = new StoredWeights(grid, new RandomWeights(100, 1, 1));
+    t.checkExpect(stored.isRandomAccess(), true);
+    t.checkExpect(stored.weight(grid, 11), this.edges.get(11).getWeight());
+    t.checkExpect(stored.weight(grid, 0), this.edges.get(0).getWeight());
+
+    // hashed weights only depend on the seed, cell, direction and bias
+    HashedWeights hashed = new HashedWeights(Long.MAX_VALUE - 3, 1, 2);
+    t.checkExpect(hashed.isRandomAccess(), true);
+    t.checkExpect(hashed.weight(grid, 3), hashed.weight(grid, 3));
+    // edge 3 is the right edge of the middle left cell
+    t.checkExpect(hashed.weight(grid, 3), hashed.weight(0, 1, MazeGrid.RIGHT));
+    // edge 4 is the up edge of the middle cell, scaled by the horizontal bias
+    t.checkExpect(hashed.weight(grid, 4), hashed.weight(1, 1, MazeGrid.UP));
+    t.checkExpect(hashed.weight(grid, 4) % 2, 0);
+    t.checkExpect(hashed.heaviest(), 1998);
+    boolean inRange = true;
+    boolean allSame = true;
+    for (int edge = 0; edge < grid.edgeCount(); edge += 1) {
+      int w = hashed.weight(grid, edge);
+      inRange = inRange && w >= hashed.lightest() && w <= hashed.heaviest();
+      allSame = allSame && w == new HashedWeights(7, 1, 2).weight(grid, edge);
+    }
+    t.checkExpect(inRange, true);
+    t.checkExpect(allSame, false);
+
+    // Kruskal's and Boruvka's agree on hashed weights too
+    MazeGrid byKruskal = new MazeGrid(12, 9);
+    GridKruskal gk = new GridKruskal(byKruskal, new HashedWeights(-42, 1, 1));
+    while (!gk.isFinished()) {
+      gk.iterate();
+    }
+    MazeGrid byBoruvka = new MazeGrid(12, 9);
+    GridBoruvka boruvka = new GridBoruvka(byBoruvka, new HashedWeights(-42, 1, 1));
+    while (!boruvka.isFinished()) {
+      boruvka.iterate();
+    }
+    t.checkExpect(this.wallDifferences(byKruskal, byBoruvka), 0);
+  }
+
+  // testing Eller's algorithm streaming rows into a grid
+  void testEllerRows(Tester t) {
+    MazeGrid grid = new MazeGrid(9, 6);
+    EllerRows eller = new EllerRows(9, 12, 1, 1);
+    t.checkExpect(eller.isFinished(), false);
+    eller.nextRow(new GridRowSink(grid));
+    t.checkExpect(eller.rows(), 1);
+    eller.generate(5, new GridRowSink(grid));
+    t.checkExpect(eller.rows(), 6);
+    t.checkExpect(eller.isFinished(), true);
+    t.checkException(new IllegalStateException("The last row has already been made"),
+        eller, "lastRow", new GridRowSink(grid));
+
+    // the maze is a spanning tree
+    t.checkExpect(this.isSpanningTree(grid), true);
+
+    // the same seed streams the same maze
+    MazeGrid again = new MazeGrid(9, 6);
+    new EllerRows(9, 12, 1, 1).generate(6, new GridRowSink(again));
+    t.checkExpect(this.wallDifferences(grid, again), 0);
+
+    // with no vertical bias every row is one corridor, which opens down only
+    // at its last cell
+    MazeGrid corridors = new MazeGrid(4, 3);
+    new EllerRows(4, 3, 0, 1).generate(3, new GridRowSink(corridors));
+    t.checkExpect(corridors.isOpen(corridors.index(1, 1), MazeGrid.RIGHT), true);
+    t.checkExpect(corridors.isOpen(corridors.index(2, 0), MazeGrid.DOWN), false);
+    t.checkExpect(corridors.isOpen(corridors.index(3, 0), MazeGrid.DOWN), true);
+    t.checkExpect(corridors.isOpen(corridors.index(3, 1), MazeGrid.DOWN), true);
+
+    // a single column is one long corridor
+    MazeGrid column = new MazeGrid(1, 4);
+    new EllerRows(1, 3, 1, 1).generate(4, new GridRowSink(column));
+    t.checkExpect(new GridSearch(column).distancesFrom(0), 3);
+
+    t.checkException(new IllegalArgumentException("Maze must have at least one cell"),
+        new EllerRows(2, 1, 1, 1), "generate", 0, new GridRowSink(column));
+  }
+
+  // testing Prim's algorithm on a grid
+  void testGridPrim(Tester t) {
+    MazeGrid grid = new MazeGrid(3, 3);
+    GridPrim prim = new GridPrim(grid, 100, 1, 1);
+    t.checkExpect(prim.isFinished(), false);
+    // every step opens exactly one wall next to the region
+    prim.iterate();
+    int openings = 0;
+    for (int cell = 0; cell < grid.size(); cell += 1) {
+      for (int dir = MazeGrid.DOWN; dir <= MazeGrid.RIGHT; dir += 2) {
+        if (grid.isOpen(cell, dir)) {
+          openings += 1;
+        }
+      }
+    }
+    t.checkExpect(openings, 1);
+    t.checkExpect(grid.isOpen(0, MazeGrid.RIGHT) || grid.isOpen(0, MazeGrid.DOWN), true);
+    prim.generate();
+    t.checkExpect(prim.isFinished(), true);
+    prim.iterate();
+    t.checkExpect(prim.isFinished(), true);
+
+    // the same weights give the same maze as Kruskal's, including the
+    // weights of the Cell and Edge version and skewed biases
+    MazeGrid byKruskal = new MazeGrid(3, 3);
+    GridKruskal gk = new GridKruskal(byKruskal, 100, 1, 1);
+    while (!gk.isFinished()) {
+      gk.iterate();
+    }
+    MazeGrid bigPrim = new MazeGrid(20, 13);
+    new GridPrim(bigPrim, new HashedWeights(9, 0.2, 3)).generate();
+    MazeGrid bigKruskal = new MazeGrid(20, 13);
+    GridKruskal bk = new GridKruskal(bigKruskal, new HashedWeights(9, 0.2, 3));
+    while (!bk.isFinished()) {
+      bk.iterate();
+    }
+    t.checkExpect(this.wallDifferences(grid, byKruskal), 0);
+    t.checkExpect(this.wallDifferences(bigPrim, bigKruskal), 0);
+
+    // a single cell is already finished
+    t.checkExpect(new GridPrim(new MazeGrid(1, 1), 3, 1, 1).isFinished(), true);
+  }
+
+  // testing Wilson's algorithm on a grid
+  void testGridWilson(Tester t) {
+    MazeGrid grid = new MazeGrid(11, 8);
+    GridWilson wilson = new GridWilson(grid, 21);
+    t.checkExpect(wilson.isFinished(), false);
+    // the first walk joins at least one cell to the tree
+    wilson.iterate();
+    t.checkExpect(grid.isOpen(0, MazeGrid.RIGHT) || grid.isOpen(0, MazeGrid.DOWN), true);
+    wilson.generate();
+    t.checkExpect(wilson.isFinished(), true);
+
+    // the maze is a spanning tree
+    t.checkExpect(this.isSpanningTree(grid), true);
+
+    // a 2 x 2 grid has 4 spanning trees, each missing one of its 4 edges,
+    // and every one comes up about as often
+    int[] missing = new int[4];
+    for (int seed = 0; seed < 4000; seed += 1) {
+      MazeGrid square = new MazeGrid(2, 2);
+      new GridWilson(square, seed).generate();
+      for (int edge = 0; edge < 4; edge += 1) {
+        if (square.isWallBitSet(square.edgeBit(edge))) {
+          missing[edge] += 1;
+        }
+      }
+    }
+    t.checkExpect(missing[0] + missing[1] + missing[2] + missing[3], 4000);
+    boolean even = true;
+    for (int edge = 0; edge < 4; edge += 1) {
+      even = even && missing[edge] > 900 && missing[edge] < 1100;
+    }
+    t.checkExpect(even, true);
+
+    t.checkExpect(new GridWilson(new MazeGrid(1, 1), 3).isFinished(), true);
+  }
+
+  // testing the row-by-row generators
+  void testGridRows(Tester t) {
+    MazeGrid grid = new MazeGrid(70, 9);
+    GridSidewinder sidewinder = new GridSidewinder(grid, 4, 1, 1);
+    t.checkExpect(sidewinder.isFinished(), false);
+    sidewinder.iterate();
+    // the first row has one opening down for each run, and one opening right
+    // for every other cell
+    int openings = 0;
+    for (int x = 0; x < 70; x += 1) {
+      if (grid.isOpen(x, MazeGrid.RIGHT)) {
+        openings += 1;
+      }
+      if (grid.isOpen(x, MazeGrid.DOWN)) {
+        openings += 1;
+      }
+    }
+    t.checkExpect(openings, 70);
+    t.checkExpect(grid.isOpen(70, MazeGrid.RIGHT), false);
+    sidewinder.generate();
+    t.checkExpect(sidewinder.isFinished(), true);
+    // the bottom row is one corridor
+    t.checkExpect(grid.isOpen(grid.index(68, 8), MazeGrid.RIGHT), true);
+    t.checkExpect(grid.isOpen(grid.index(0, 8), MazeGrid.RIGHT), true);
+
+    MazeGrid tree = new MazeGrid(70, 9);
+    new GridBinaryTree(tree, 4, 1, 1).generate();
+    // the right column is one corridor
+    t.checkExpect(tree.isOpen(grid.index(69, 0), MazeGrid.DOWN), true);
+    t.checkExpect(tree.isOpen(grid.index(69, 7), MazeGrid.DOWN), true);
+
+    // both are spanning trees
+    t.checkExpect(this.isSpanningTree(grid), true);
+    t.checkExpect(this.isSpanningTree(tree), true);
+
+    // rows made one at a time, or on one thread, give the same maze
+    MazeGrid oneAtATime = new MazeGrid(70, 9);
+    GridSidewinder stepped = new GridSidewinder(oneAtATime, 4, 1, 1);
+    while (!stepped.isFinished()) {
+      stepped.iterate();
+    }
+    MazeGrid oneThread = new MazeGrid(70, 9);
+    ForkJoinPool pool = new ForkJoinPool(1);
+    new GridBinaryTree(oneThread, 4, 1, 1).generate(pool);
+    pool.shutdown();
+    t.checkExpect(this.wallDifferences(grid, oneAtATime), 0);
+    t.checkExpect(this.wallDifferences(tree, oneThread), 0);
+
+    // with no vertical bias every binary tree cell opens right, and with no
+    // horizontal bias every one opens down
+    MazeGrid rightOnly = new MazeGrid(5, 3);
+    new GridBinaryTree(rightOnly, 4, 0, 1).generate();
+    t.checkExpect(rightOnly.isOpen(rightOnly.index(2, 1), MazeGrid.RIGHT), true);
+    t.checkExpect(rightOnly.isOpen(rightOnly.index(2, 1), MazeGrid.DOWN), false);
+    MazeGrid downOnly = new MazeGrid(5, 3);
+    new GridBinaryTree(downOnly, 4, 1, 0).generate();
+    t.checkExpect(downOnly.isOpen(downOnly.index(2, 1), MazeGrid.RIGHT), false);
+    t.checkExpect(downOnly.isOpen(downOnly.index(2, 1), MazeGrid.DOWN), true);
+    // a bias of 3 to 1 opens right about three times as often
+    MazeGrid skewed = new MazeGrid(200, 101);
+    new GridBinaryTree(skewed, 8, 1, 3).generate();
+    int rights = 0;
+    for (int y = 0; y < 100; y += 1) {
+      for (int x = 0; x < 199; x += 1) {
+        if (skewed.isOpen(skewed.index(x, y), MazeGrid.RIGHT)) {
+          rights += 1;
+        }
+      }
+    }
+    t.checkExpect(rights > 14600 && rights < 15250, true);
+  }
+
+  // testing knocking down many walls of a grid at once
+  void testBreakWallRun(Tester t) {
+    MazeGrid grid = new MazeGrid(40, 2);
+    // the run straddles two words
+    grid.breakWallRunConcurrently(60, 0b10101L);
+    t.checkExpect(grid.isWallBitSet(60), false);
+    t.checkExpect(grid.isWallBitSet(61), true);
+    t.checkExpect(grid.isWallBitSet(62), false);
+    t.checkExpect(grid.isWallBitSet(64), false);
+    t.checkExpect(grid.isWallBitSet(65), true);
+    grid.breakWallRunConcurrently(0, 1L << 63);
+    t.checkExpect(grid.isWallBitSet(63), false);
+    t.checkExpect(grid.isWallBitSet(0), true);
+  }
+
+  // testing the recursive backtracker on a grid
+  void testGridBacktracker(Tester t) {
+    MazeGrid grid = new MazeGrid(13, 10);
+    GridBacktracker backtracker = new GridBacktracker(grid, 6);
+    t.checkExpect(backtracker.isFinished(), false);
+    // the first step carves out of the top left cell
+    backtracker.iterate();
+    t.checkExpect(grid.isOpen(0, MazeGrid.RIGHT) != grid.isOpen(0, MazeGrid.DOWN), true);
+    backtracker.generate();
+    t.checkExpect(backtracker.isFinished(), true);
+    backtracker.iterate();
+    t.checkExpect(backtracker.isFinished(), true);
+
+    // the maze is a spanning tree
+    t.checkExpect(this.isSpanningTree(grid), true);
+
+    // a single row is carved as one corridor, as deep as the maze is long
+    MazeGrid corridor = new MazeGrid(100000, 1);
+    new GridBacktracker(corridor, 1).generate();
+    t.checkExpect(new GridSearch(corridor).distancesFrom(0), 99999);
+    t.checkExpect(new GridBacktracker(new MazeGrid(1, 1), 3).isFinished(), true);
+  }
+
+  // testing recursive division on a grid
+  void testGridDivision(Tester t) {
+    MazeGrid grid = new MazeGrid(30, 20);
+    GridDivision division = new GridDivision(grid, 15, 1, 1, 16);
+    // the grid starts as one open room
+    t.checkExpect(grid.isOpen(grid.index(4, 4), MazeGrid.RIGHT), true);
+    t.checkExpect(grid.isOpen(grid.index(4, 4), MazeGrid.DOWN), true);
+    t.checkExpect(grid.isOpen(grid.index(29, 4), MazeGrid.RIGHT), false);
+    t.checkExpect(division.isFinished(), false);
+    // the first wall leaves one gap, either across all 30 columns or down
+    // all 20 rows
+    division.iterate();
+    int walls = 0;
+    for (int cell = 0; cell < grid.size(); cell += 1) {
+      if (!grid.isOpen(cell, MazeGrid.RIGHT) && grid.x(cell) != 29) {
+        walls += 1;
+      }
+      if (!grid.isOpen(cell, MazeGrid.DOWN) && grid.y(cell) != 19) {
+        walls += 1;
+      }
+    }
+    t.checkExpect(walls == 29 || walls == 19, true);
+    division.generate();
+    t.checkExpect(division.isFinished(), true);
+
+    // the maze is a spanning tree
+    t.checkExpect(this.isSpanningTree(grid), true);
+
+    // animated one chamber at a time, or split on one thread with another
+    // cutoff, it is the same maze
+    MazeGrid stepped = new MazeGrid(30, 20);
+    GridDivision steps = new GridDivision(stepped, 15, 1, 1);
+    while (!steps.isFinished()) {
+      steps.iterate();
+    }
+    MazeGrid oneThread = new MazeGrid(30, 20);
+    ForkJoinPool pool = new ForkJoinPool(1);
+    new GridDivision(oneThread, 15, 1, 1, 1).generate(pool);
+    pool.shutdown();
+    t.checkExpect(this.wallDifferences(grid, stepped), 0);
+    t.checkExpect(this.wallDifferences(grid, oneThread), 0);
+
+    // with no vertical bias every wall is between rows, so the columns stay
+    // open
+    MazeGrid rows = new MazeGrid(6, 5);
+    new GridDivision(rows, 2, 0, 1).generate();
+    t.checkExpect(rows.isOpen(rows.index(2, 3), MazeGrid.RIGHT), true);
+    t.checkExpect(rows.isOpen(rows.index(2, 3), MazeGrid.DOWN)
+        && rows.isOpen(rows.index(3, 3), MazeGrid.DOWN), false);
+
+    t.checkExpect(new GridDivision(new MazeGrid(1, 7), 3, 1, 1).isFinished(), true);
+    t.checkConstructorException(new IllegalArgumentException("Cutoff must be at least one cell"),
+        "GridDivision", new MazeGrid(2, 2), 3L, 1.0, 1.0, 0);
+  }
+
+  // testing the origin shift algorithm keeping a maze changing
+  void testOriginShift(Tester t) {
+    MazeGrid grid = new MazeGrid(6, 5);
+    GridKruskal kruskal = new GridKruskal(grid, new HashedWeights(3, 1, 1));
+    while (!kruskal.isFinished()) {
+      kruskal.iterate();
+    }
+    OriginShift shifter = new OriginShift(grid, 29, 8);
+    t.checkExpect(shifter.origin(), 29);
+    t.checkExpect(shifter.parent(29), (int) OriginShift.ROOT);
+    // every cell points back towards the origin
+    int cell = 0;
+    int steps = 0;
+    while (cell != 29 && steps < 30) {
+      cell = grid.move(cell, shifter.parent(cell));
+      steps += 1;
+    }
+    t.checkExpect(cell, 29);
+
+    // one shift moves the origin next door and changes at most two walls
+    MazeGrid before = new MazeGrid(6, 5);
+    for (int bit = 0; bit < 2 * grid.size(); bit += 1) {
+      if (!grid.isWallBitSet(bit)) {
+        before.breakWallBit(bit);
+      }
+    }
+    shifter.shift();
+    int moved = shifter.origin();
+    t.checkExpect(grid.neighbor(29, MazeGrid.UP) == moved
+        || grid.neighbor(29, MazeGrid.LEFT) == moved, true);
+    t.checkExpect(grid.neighbor(29, shifter.parent(29)), moved);
+    t.checkExpect(grid.isOpen(29, shifter.parent(29)), true);
+    int changed = 0;
+    for (int bit = 0; bit < 2 * grid.size(); bit += 1) {
+      if (grid.isWallBitSet(bit) != before.isWallBitSet(bit)) {
+        changed += 1;
+      }
+    }
+    t.checkExpect(changed == 0 || changed == 2, true);
+
+    // after many shifts the maze is still a spanning tree
+    for (int i = 0; i < 1000; i += 1) {
+      shifter.shift();
+    }
+    t.checkExpect(this.isSpanningTree(grid), true);
+
+    // mazes with loops or unreachable cells can't be shifted
+    MazeGrid room = new MazeGrid(3, 3);
+    room.openAllWalls();
+    t.checkConstructorException(new IllegalArgumentException("Maze must be a spanning tree"),
+        "OriginShift", room, 0, 1L);
+    t.checkConstructorException(new IllegalArgumentException("Maze must be a spanning tree"),
+        "OriginShift", new MazeGrid(3, 3), 0, 1L);
+    OriginShift single = new OriginShift(new MazeGrid(1, 1), 0, 1);
+    single.shift();
+    t.checkExpect(single.origin(), 0);
+  }
+
+  // testing that drawing a grid only builds the images of cells that changed
+  void testCellImages(Tester t) {
+    MazeGrid grid = new MazeGrid(4, 3);
+    GridState state = new GridState(grid.size());
+    HeatFields heat = new HeatFields(grid);
+    CellImages images = new CellImages(grid.size());
+    new DrawGrid(new WorldScene(40, 30), 10, grid, state, heat, images).drawCells(0);
+    t.checkExpect(images.built(), 12);
+    new DrawGrid(new WorldScene(40, 30), 10, grid, state, heat, images).drawCells(0);
+    t.checkExpect(images.built(), 12);
+    // a wall changes the look of the cells on both sides of it
+    grid.breakWall(5, MazeGrid.RIGHT);
+    new DrawGrid(new WorldScene(40, 30), 10, grid, state, heat, images).drawCells(0);
+    t.checkExpect(images.built(), 14);
+    // and so does a color
+    state.visit(0);
+    new DrawGrid(new WorldScene(40, 30), 10, grid, state, heat, images).drawCells(0);
+    t.checkExpect(images.built(), 15);
+    t.checkExpect(images.looksLike(0, -1), false);
+    t.checkExpect(new CellImages(2).looksLike(1, -1), true);
+  }
+
+  // testing that heatmap distances are only searched for again once the
+  // walls change
+  void testHeatFields(Tester t) {
+    MazeGrid grid = new MazeGrid(4, 3);
+    int blank = grid.version();
+    t.checkExpect(grid.version(), blank);
+    grid.breakWall(0, MazeGrid.RIGHT);
+    grid.breakWall(1, MazeGrid.DOWN);
+    int broken = grid.version();
+    t.checkExpect(broken == blank, false);
+    t.checkExpect(grid.version(), broken);
+    grid.buildWallBitConcurrently(0);
+    t.checkExpect(grid.version() == broken, false);
+    grid.breakWallBit(0);
+
+    HeatFields heat = new HeatFields(grid);
+    t.checkExpect(heat.searches(), 0);
+    t.checkExpect(heat.furthest(HeatFields.TOP_LEFT), 2);
+    t.checkExpect(heat.field(HeatFields.TOP_LEFT).distanceTo(5), 2);
+    t.checkExpect(heat.searches(), 1);
+    // drawing either heatmap again searches only for the one never found
+    GridState state = new GridState(grid.size());
+    CellImages images = new CellImages(grid.size());
+    new DrawGrid(new WorldScene(40, 30), 10, grid, state, heat, images).drawCells(1);
+    new DrawGrid(new WorldScene(40, 30), 10, grid, state, heat, images).drawCells(2);
+    new DrawGrid(new WorldScene(40, 30), 10, grid, state, heat, images).drawCells(1);
+    new DrawGrid(new WorldScene(40, 30), 10, grid, state, heat, images).drawCells(0);
+    t.checkExpect(heat.searches(), 2);
+    t.checkExpect(heat.field(HeatFields.BOTTOM_RIGHT).distanceTo(0), -1);
+    // a new wall means a new search
+    grid.breakWall(5, MazeGrid.DOWN);
+    grid.breakWall(9, MazeGrid.RIGHT);
+    grid.breakWall(10, MazeGrid.RIGHT);
+    t.checkExpect(heat.furthest(HeatFields.BOTTOM_RIGHT), 5);
+    t.checkExpect(heat.searches(), 3);
+    t.checkExpect(heat.furthest(HeatFields.TOP_LEFT), 5);
+    t.checkExpect(heat.searches(), 4);
+  }
+
+  // testing running animations a frame at a time
+  void testAnimationPacer(Tester t) {
+    init();
+    initEdges();
+    KruskalsUnionFind kuf = new KruskalsUnionFind(edges);
+    // one step per frame, like iterating by hand
+    AnimationPacer oneStep = AnimationPacer.oneStep();
+    t.checkExpect(oneStep.step(kuf), 1);
+    t.checkExpect(oneStep.step(kuf), 1);
+    // all the time in the world, but only 5 steps
+    t.checkExpect(new AnimationPacer(Long.MAX_VALUE, 5).step(kuf), 5);
+    t.checkExpect(kuf.isFinished(), false);
+    // the rest of Kruskal's fits in one frame, and a finished animation
+    // takes no steps
+    AnimationPacer unlimited = new AnimationPacer(Long.MAX_VALUE, Integer.MAX_VALUE);
+    t.checkExpect(unlimited.step(kuf), 3);
+    t.checkExpect(kuf.isFinished(), true);
+    t.checkExpect(unlimited.step(kuf), 0);
+
+    // the depth first search runs 9 steps, one per frame when the budget is
+    // used up at once
+    SearchHelper sh = new SearchHelper(topLeft, bottomRight, new Stack<Cell>(),
+        new EpochMarks(9), 3);
+    AnimationPacer noTime = new AnimationPacer(0, 100);
+    int frames = 0;
+    while (!sh.isFinished()) {
+      t.checkExpect(noTime.step(sh), 1);
+      frames += 1;
+    }
+    t.checkExpect(frames, 9);
+    // or all in one frame with time to spare
+    init();
+    initEdges();
+    KruskalsUnionFind connect = new KruskalsUnionFind(edges);
+    AnimationPacer.millis(1000).step(connect);
+    t.checkExpect(connect.isFinished(), true);
+    SearchHelper again = new SearchHelper(topLeft, bottomRight, new Stack<Cell>(),
+        new EpochMarks(9), 3);
+    t.checkExpect(AnimationPacer.millis(1000).step(again), 9);
+
+    // a big grid takes many frames; with every look at the clock costing
+    // a twentieth of the budget, each frame ends after 20 batches, and the
+    // batches grow as the steps turn out to be cheap
+    MazeGrid grid = new MazeGrid(300, 300);
+    GridKruskal kruskal = new GridKruskal(grid, new HashedWeights(1, 1, 1));
+    AnimationPacer paced = new AnimationPacer(2000000, Integer.MAX_VALUE,
+        new TickingClock(100000));
+    t.checkExpect(paced.step(kruskal), 20);
+    t.checkExpect(paced.step(kruskal), 40);
+    t.checkExpect(paced.step(kruskal), 100);
+    t.checkExpect(kruskal.isFinished(), false);
+    // a step limit still ends the frame first
+    AnimationPacer capped = new AnimationPacer(2000000, 7, new TickingClock(100000));
+    t.checkExpect(capped.step(kruskal), 7);
+
+    t.checkConstructorException(
+        new IllegalArgumentException("A frame must have time for at least one step"),
+        "AnimationPacer", 5L, 0);
+  }
+
+  // testing A* search over a grid
+  void testGridAStar(Tester t) {
+    MazeGrid grid = new MazeGrid(30, 20);
+    GridKruskal kruskal = new GridKruskal(grid, new HashedWeights(12, 1, 1));
+    while (!kruskal.isFinished()) {
+      kruskal.iterate();
+    }
+    GridSearch bfs = new GridSearch(grid);
+    bfs.distancesFrom(0);
+    int shortest = bfs.distanceTo(599);
+
+    GridState state = new GridState(grid.size());
+    GridAStar aStar = new GridAStar(grid, state, 0, 599);
+    t.checkExpect(aStar.isFinished(), false);
+    aStar.iterate();
+    t.checkExpect(state.isVisited(0), true);
+    t.checkExpect(aStar.expanded(), 1);
+    t.checkExpect(aStar.solve(), shortest);
+    t.checkExpect(aStar.isFinished(), true);
+    // the path from the start to the target is highlighted
+    int highlighted = 0;
+    int visited = 0;
+    for (int cell = 0; cell < grid.size(); cell += 1) {
+      if (state.isHighlighted(cell)) {
+        highlighted += 1;
+      }
+      if (state.isVisited(cell)) {
+        visited += 1;
+      }
+    }
+    t.checkExpect(highlighted, shortest + 1);
+    t.checkExpect(state.isHighlighted(0), true);
+    t.checkExpect(visited, aStar.expanded());
+    // it expands fewer cells than a breadth first search
+    GridState breadthState = new GridState(grid.size());
+    GridSearchHelper breadth = new GridSearchHelper(grid, breadthState, 0, 599, new IntQueue());
+    int breadthVisited = 0;
+    while (!breadth.isFinished()) {
+      breadth.iterate();
+    }
+    for (int cell = 0; cell < grid.size(); cell += 1) {
+      if (breadthState.isVisited(cell)) {
+        breadthVisited += 1;
+      }
+    }
+    t.checkExpect(aStar.expanded() <= breadthVisited, true);
+
+    // a target that can't be reached has no path
+    MazeGrid walled = new MazeGrid(3, 3);
+    t.checkExpect(new GridAStar(walled, new GridState(9), 0, 8).solve(), -1);
+    t.checkExpect(new GridAStar(walled, new GridState(9), 4, 4).solve(), 0);
+  }
+
+  // testing a breadth first search from both ends of a grid
+  void testGridBidirectional(Tester t) {
+    MazeGrid grid = new MazeGrid(30, 20);
+    GridKruskal kruskal = new GridKruskal(grid, new HashedWeights(12, 1, 1));
+    while (!kruskal.isFinished()) {
+      kruskal.iterate();
+    }
+    GridSearch bfs = new GridSearch(grid);
+    bfs.distancesFrom(0);
+    int shortest = bfs.distanceTo(599);
+
+    GridState state = new GridState(grid.size());
+    GridBidirectional search = new GridBidirectional(grid, state, 0, 599);
+    t.checkExpect(search.isFinished(), false);
+    search.iterate();
+    t.checkExpect(state.isVisited(0), true);
+    t.checkExpect(state.isVisitedFromEnd(0), false);
+    t.checkExpect(search.solve(), shortest);
+    t.checkExpect(search.isFinished(), true);
+    t.checkExpect(state.isVisitedFromEnd(599), true);
+    // the spliced path runs from the target back to the start one step at a
+    // time, and every cell on it is highlighted
+    int steps = 0;
+    int cell = 599;
+    while (state.previous(cell) != -1) {
+      t.checkExpect(state.isHighlighted(cell), true);
+      t.checkExpect(bfs.distanceTo(state.previous(cell)), bfs.distanceTo(cell) - 1);
+      cell = state.previous(cell);
+      steps += 1;
+    }
+    t.checkExpect(cell, 0);
+    t.checkExpect(steps, shortest);
+    int highlighted = 0;
+    for (int c = 0; c < grid.size(); c += 1) {
+      if (state.isHighlighted(c)) {
+        highlighted += 1;
+      }
+    }
+    t.checkExpect(highlighted, shortest + 1);
+
+    // an open grid has a shortest path through every meeting level
+    MazeGrid open = new MazeGrid(5, 4);
+    open.openAllWalls();
+    t.checkExpect(new GridBidirectional(open, new GridState(20), 0, 19).solve(), 7);
+    t.checkExpect(new GridBidirectional(open, new GridState(20), 0, 1).solve(), 1);
+
+    // a target that can't be reached has no path
+    MazeGrid walled = new MazeGrid(3, 3);
+    t.checkExpect(new GridBidirectional(walled, new GridState(9), 0, 8).solve(), -1);
+    GridState same = new GridState(9);
+    t.checkExpect(new GridBidirectional(walled, same, 4, 4).solve(), 0);
+    t.checkExpect(same.isHighlighted(4), true);
+
+    // cells visited from the end are drawn in their own color
+    Utils utils = new Utils();
+    t.checkExpect(utils.cellColor(false, false, true, 0, 0, 1), new Color(168, 129, 50));
+    t.checkExpect(utils.cellColor(false, true, false, 0, 0, 1), new Color(50, 168, 129));
+    t.checkExpect(utils.cellColor(true, true, true, 0, 0, 1), new Color(3, 252, 198));
+  }
+
+  // testing filling in the dead ends of a grid
+  void testDeadEndFill(Tester t) {
+    MazeGrid grid = new MazeGrid(30, 20);
+    GridKruskal kruskal = new GridKruskal(grid, new HashedWeights(12, 1, 1));
+    while (!kruskal.isFinished()) {
+      kruskal.iterate();
+    }
+    GridSearch bfs = new GridSearch(grid);
+    bfs.distancesFrom(0);
+    int shortest = bfs.distanceTo(599);
+
+    GridState state = new GridState(grid.size());
+    DeadEndFill fill = new DeadEndFill(grid, state, 0, 599);
+    t.checkExpect(fill.isFinished(), false);
+    fill.iterate();
+    t.checkExpect(fill.sealed(), 1);
+    MazeGrid pruned = fill.fill();
+    t.checkExpect(fill.isFinished(), true);
+    t.checkExpect(pruned, fill.pruned());
+    // the original maze is left alone
+    t.checkExpect(grid.isOpen(0, MazeGrid.RIGHT) || grid.isOpen(0, MazeGrid.DOWN), true);
+    // every cell off the path is sealed and marked, the path is highlighted
+    t.checkExpect(fill.sealed(), grid.size() - shortest - 1);
+    int highlighted = 0;
+    int visited = 0;
+    for (int cell = 0; cell < grid.size(); cell += 1) {
+      if (state.isHighlighted(cell)) {
+        highlighted += 1;
+      }
+      if (state.isVisited(cell)) {
+        visited += 1;
+      }
+    }
+    t.checkExpect(highlighted, shortest + 1);
+    t.checkExpect(visited, fill.sealed());
+    // a breadth first search over the pruned maze only walks the path
+    GridState prunedState = new GridState(grid.size());
+    GridSearchHelper search = new GridSearchHelper(pruned, prunedState, 0, 599, new IntQueue());
+    int steps = 0;
+    while (!search.isFinished()) {
+      search.iterate();
+      steps += 1;
+    }
+    t.checkExpect(steps, shortest + 1);
+
+    // keeping several cells leaves the paths between all of them
+    MazeGrid kept = new DeadEndFill(grid, new int[] { 0, 599, 310 }).fill();
+    GridSearch keptSearch = new GridSearch(kept);
+    keptSearch.distancesFrom(0);
+    t.checkExpect(keptSearch.distanceTo(599), shortest);
+    t.checkExpect(keptSearch.distanceTo(310), bfs.distanceTo(310));
+
+    // a maze with no dead ends is left as it is
+    MazeGrid one = new MazeGrid(1, 1);
+    DeadEndFill single = new DeadEndFill(one, new GridState(1), 0, 0);
+    single.fill();
+    t.checkExpect(single.sealed(), 0);
+    t.checkExpect(single.isFinished(), true);
+
+    // a kept cell stays open when every branch around it is sealed
+    MazeGrid plus = new MazeGrid(3, 3);
+    for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+      plus.breakWall(4, dir);
+    }
+    GridState plusState = new GridState(plus.size());
+    DeadEndFill center = new DeadEndFill(plus, plusState, 4, 4);
+    center.fill();
+    t.checkExpect(center.sealed(), 4);
+    t.checkExpect(plusState.isVisited(4), false);
+    t.checkExpect(plusState.isHighlighted(4), true);
+  }
+
+  // testing distance and path queries over a perfect maze
+  void testGridPathIndex(Tester t) {
+    MazeGrid grid = new MazeGrid(30, 20);
+    GridKruskal kruskal = new GridKruskal(grid, new HashedWeights(12, 1, 1));
+    while (!kruskal.isFinished()) {
+      kruskal.iterate();
+    }
+    GridPathIndex index = new GridPathIndex(grid);
+    GridSearch bfs = new GridSearch(grid);
+    bfs.distancesFrom(0);
+    t.checkExpect(index.parent(0), -1);
+    t.checkExpect(index.depth(599), bfs.distanceTo(599));
+    t.checkExpect(index.ancestor(0, 599), 0);
+    t.checkExpect(index.ancestor(137, 137), 137);
+    // every distance matches a breadth first search from the same cell
+    int[] origins = { 0, 45, 137, 310, 599 };
+    for (int origin : origins) {
+      bfs.distancesFrom(origin);
+      boolean matches = true;
+      for (int cell = 0; cell < grid.size(); cell += 1) {
+        matches = matches && index.distance(origin, cell) == bfs.distanceTo(cell)
+            && index.distance(cell, origin) == bfs.distanceTo(cell);
+      }
+      t.checkExpect(matches, true);
+    }
+    // a path is the same as the one a search walks back
+    bfs.distancesFrom(45);
+    t.checkExpect(index.path(45, 310), bfs.pathTo(310));
+    t.checkExpect(index.path(310, 310), new int[] { 310 });
+
+    // an open line has its ancestor at the near end
+    MazeGrid line = new MazeGrid(4, 1);
+    line.openAllWalls();
+    GridPathIndex lineIndex = new GridPathIndex(line);
+    t.checkExpect(lineIndex.ancestor(3, 1), 1);
+    t.checkExpect(lineIndex.path(3, 1), new int[] { 3, 2, 1 });
+    t.checkExpect(new GridPathIndex(new MazeGrid(1, 1)).distance(0, 0), 0);
+
+    // a maze that is not a spanning tree can't be indexed
+    MazeGrid open = new MazeGrid(2, 2);
+    open.openAllWalls();
+    t.checkConstructorException(new IllegalArgumentException("Maze must be a spanning tree"),
+        "GridPathIndex", open);
+    t.checkConstructorException(new IllegalArgumentException("Maze must be a spanning tree"),
+        "GridPathIndex", new MazeGrid(2, 1));
+  }
+
+  // testing batches of path queries over a perfect maze
+  void testGridPathBatch(Tester t) {
+    MazeGrid grid = new MazeGrid(30, 20);
+    GridKruskal kruskal = new GridKruskal(grid, new HashedWeights(12, 1, 1));
+    while (!kruskal.isFinished()) {
+      kruskal.iterate();
+    }
+    GridPathIndex index = new GridPathIndex(grid);
+    int[] pairs = { 0, 599, 45, 310, 310, 45, 137, 137 };
+    GridPathBatch batch = new GridPathBatch(index, pairs);
+    t.checkExpect(batch.count(), 4);
+    t.checkExpect(batch.distance(0), index.distance(0, 599));
+    t.checkExpect(batch.path(0), index.path(0, 599));
+    t.checkExpect(batch.path(1), index.path(45, 310));
+    t.checkExpect(batch.path(2), index.path(310, 45));
+    t.checkExpect(batch.distance(3), 0);
+    t.checkExpect(batch.moves(3), new byte[0]);
+    t.checkExpect(batch.path(3), new int[] { 137 });
+    t.checkExpect(batch.moves(1).length, batch.distance(1));
+
+    // many queries split over the pool match the same queries one at a time
+    int[] many = new int[2 * 3000];
+    for (int i = 0; i < many.length; i += 1) {
+      many[i] = (int) Math.floorMod(HashedWeights.hash(5, i), (long) grid.size());
+    }
+    ForkJoinPool pool = new ForkJoinPool(3);
+    GridPathBatch big = new GridPathBatch(index, many, pool);
+    pool.shutdown();
+    boolean matches = true;
+    for (int i = 0; i < big.count(); i += 1) {
+      matches = matches && big.distance(i) == index.distance(many[2 * i], many[2 * i + 1])
+          && Arrays.equals(big.path(i), index.path(many[2 * i], many[2 * i + 1]));
+    }
+    t.checkExpect(matches, true);
+
+    // the moves follow the open walls from the start to the goal
+    MazeGrid line = new MazeGrid(3, 1);
+    line.openAllWalls();
+    GridPathBatch lineBatch = new GridPathBatch(new GridPathIndex(line), new int[] { 2, 0, 0, 2 });
+    t.checkExpect(lineBatch.moves(0), new byte[] { MazeGrid.LEFT, MazeGrid.LEFT });
+    t.checkExpect(lineBatch.moves(1), new byte[] { MazeGrid.RIGHT, MazeGrid.RIGHT });
+
+    t.checkConstructorException(new IllegalArgumentException("Every start must have a goal"),
+        "GridPathBatch", index, new int[] { 0, 1, 2 });
+
+    // a finished maze answers queries through the graph
+    Graph graph = new Graph(6, 4, 7, 1, 1);
+    t.checkException(new IllegalStateException("The maze is not finished yet"),
+        graph, "queryPaths", new int[] { 0, 23 });
+    graph.skipAnimation();
+    GridPathBatch graphBatch = graph.queryPaths(new int[] { 0, 23, 5, 18 });
+    // the index is kept until the walls change
+    t.checkExpect(graph.queryPaths(new int[] { 0, 23 }).path(0), graphBatch.path(0));
+    t.checkExpect(graph.pathIndexBuilds(), 1);
+    graph.backtracker();
+    t.checkException(new IllegalStateException("The maze is not finished yet"),
+        graph, "queryPaths", new int[] { 0, 23 });
+    graph.skipAnimation();
+    t.checkExpect(graph.queryPaths(new int[] { 0, 23 }).path(0)[0], 0);
+    t.checkExpect(graph.pathIndexBuilds(), 2);
+    t.checkExpect(graphBatch.count(), 2);
+    t.checkExpect(graphBatch.path(0).length, graphBatch.distance(0) + 1);
+    t.checkExpect(graphBatch.path(0)[graphBatch.distance(0)], 23);
+    t.checkExpect(graphBatch.path(1)[0], 5);
+  }
+
+  // to check that a parallel search agrees with a GridSearch from the same
+  // origin on every distance and parent
+  boolean sameSearch(MazeGrid grid, int origin, ParallelGridSearch parallel) {
+    GridSearch serial = new GridSearch(grid);
+    boolean same = serial.distancesFrom(origin) == parallel.distancesFrom(origin);
+    for (int cell = 0; cell < grid.size(); cell += 1) {
+      same = same && serial.distanceTo(cell) == parallel.distanceTo(cell)
+          && serial.parent(cell) == parallel.parent(cell);
+    }
+    return same;
+  }
+
+  // testing a breadth first search that expands each level in parallel
+  void testParallelGridSearch(Tester t) {
+    ForkJoinPool pool = new ForkJoinPool(3);
+    MazeGrid grid = new MazeGrid(30, 20);
+    GridKruskal kruskal = new GridKruskal(grid, new HashedWeights(12, 1, 1));
+    while (!kruskal.isFinished()) {
+      kruskal.iterate();
+    }
+    t.checkExpect(this.sameSearch(grid, 0, new ParallelGridSearch(grid)), true);
+    t.checkExpect(this.sameSearch(grid, 310, new ParallelGridSearch(grid, pool, 1)), true);
+    // a perfect maze never has a frontier big enough to scan every cell for
+    ParallelGridSearch perfect = new ParallelGridSearch(grid, pool, 1);
+    perfect.distancesFrom(0);
+    t.checkExpect(perfect.bottomUpLevels(), 0);
+    perfect.distancesFrom(310);
+    t.checkExpect(perfect.bottomUpLevels(), 0);
+    // an open room grows a frontier big enough to search from the cells left
+    MazeGrid room = new MazeGrid(20, 20);
+    room.openAllWalls();
+    ParallelGridSearch roomSearch = new ParallelGridSearch(room, pool, 2);
+    t.checkExpect(this.sameSearch(room, 210, roomSearch), true);
+    t.checkExpect(roomSearch.bottomUpLevels() > 0, true);
+    MazeGrid open = new MazeGrid(45, 40);
+    open.openAllWalls();
+    t.checkExpect(this.sameSearch(open, 0, new ParallelGridSearch(open, pool, 2)), true);
+    t.checkExpect(this.sameSearch(open, 923, new ParallelGridSearch(open, pool, 7)), true);
+    t.checkExpect(this.sameSearch(open, 923, new ParallelGridSearch(open)), true);
+    // a room with a few walls back up has loops and dead ends
+    for (int cell = 0; cell < open.size(); cell += 3) {
+      open.buildWall(cell, (int) Math.floorMod(HashedWeights.hash(9, cell), 4L));
+    }
+    t.checkExpect(this.sameSearch(open, 17, new ParallelGridSearch(open, pool, 2)), true);
+
+    ParallelGridSearch walled = new ParallelGridSearch(new MazeGrid(3, 3));
+    t.checkExpect(walled.distancesFrom(4), 0);
+    t.checkExpect(walled.distanceTo(4), 0);
+    t.checkExpect(walled.distanceTo(0), -1);
+    t.checkExpect(walled.parent(4), -1);
+    t.checkExpect(walled.parent(0), -1);
+    t.checkConstructorException(new IllegalArgumentException("Grain must be at least one"),
+        "ParallelGridSearch", open, pool, 0);
+    pool.shutdown();
+  }
+
+  // testing searches over a grid with its corridors collapsed
+  void testJunctionGraph(Tester t) {
+    MazeGrid grid = new MazeGrid(30, 20);
+    GridKruskal kruskal = new GridKruskal(grid, new HashedWeights(12, 1, 1));
+    while (!kruskal.isFinished()) {
+      kruskal.iterate();
+    }
+    JunctionGraph junctions = new JunctionGraph(grid, new int[] { 599, 0 });
+    t.checkExpect(junctions.nodes() < grid.size(), true);
+    // a perfect maze stays a tree
+    t.checkExpect(junctions.edges(), junctions.nodes() - 1);
+    GridSearch bfs = new GridSearch(grid);
+    bfs.distancesFrom(0);
+    t.checkExpect(junctions.distance(0, 599), bfs.distanceTo(599));
+    t.checkExpect(junctions.path(0, 599), bfs.pathTo(599));
+    t.checkExpect(junctions.expanded() <= junctions.nodes(), true);
+    int expanded = junctions.expanded();
+    t.checkExpect(junctions.path(599, 599), new int[] { 599 });
+    t.checkExpect(junctions.distance(599, 599), 0);
+    // cells in the middle of a corridor join the graph when they are asked
+    int[] starts = new int[] { this.corridorCell(grid), 37, 250 };
+    for (int start : starts) {
+      bfs.distancesFrom(start);
+      for (int cell = 0; cell < grid.size(); cell += 1) {
+        t.checkExpect(junctions.distance(start, cell), bfs.distanceTo(cell));
+        t.checkExpect(junctions.path(start, cell), bfs.pathTo(cell));
+      }
+    }
+    // the search state left over from earlier queries changes nothing
+    bfs.distancesFrom(0);
+    t.checkExpect(junctions.path(0, 599), bfs.pathTo(599));
+    t.checkExpect(junctions.expanded(), expanded);
+
+    // opening extra walls makes loops, which A* finds its way around
+    MazeGrid loopy = grid.copy();
+    for (int cell = 0; cell < loopy.size(); cell += 7) {
+      int dir = (int) Math.floorMod(HashedWeights.hash(3, cell), 4L);
+      if (loopy.neighbor(cell, dir) >= 0) {
+        loopy.breakWall(cell, dir);
+      }
+    }
+    JunctionGraph loopyJunctions = new JunctionGraph(loopy);
+    t.checkExpect(loopyJunctions.edges() > loopyJunctions.nodes() - 1, true);
+    GridSearch loopySearch = new GridSearch(loopy);
+    for (int start : starts) {
+      loopySearch.distancesFrom(start);
+      boolean walks = true;
+      for (int cell = 0; cell < loopy.size(); cell += 1) {
+        t.checkExpect(loopyJunctions.distance(start, cell), loopySearch.distanceTo(cell));
+        int[] path = loopyJunctions.path(start, cell);
+        walks = walks && path.length == loopySearch.distanceTo(cell) + 1
+            && path[0] == start && path[path.length - 1] == cell;
+        for (int i = 1; i < path.length; i += 1) {
+          walks = walks && this.adjacentOpen(loopy, path[i - 1], path[i]);
+        }
+      }
+      t.checkExpect(walks, true);
+    }
+
+    // in a room with loops the corridors can have different lengths
+    MazeGrid ring = new MazeGrid(4, 3);
+    ring.openAllWalls();
+    ring.buildWall(5, MazeGrid.RIGHT);
+    ring.buildWall(5, MazeGrid.DOWN);
+    ring.buildWall(1, MazeGrid.DOWN);
+    ring.buildWall(4, MazeGrid.RIGHT);
+    JunctionGraph ringJunctions = new JunctionGraph(ring, new int[] { 0, 11 });
+    GridSearch ringSearch = new GridSearch(ring);
+    ringSearch.distancesFrom(0);
+    t.checkExpect(ringJunctions.distance(0, 11), ringSearch.distanceTo(11));
+    t.checkExpect(ringJunctions.path(0, 11).length, ringSearch.distanceTo(11) + 1);
+    for (int start = 0; start < ring.size(); start += 1) {
+      ringSearch.distancesFrom(start);
+      for (int cell = 0; cell < ring.size(); cell += 1) {
+        t.checkExpect(ringJunctions.distance(start, cell), ringSearch.distanceTo(cell));
+        t.checkExpect(ringJunctions.path(start, cell).length, ringSearch.distanceTo(cell) + 1);
+      }
+    }
+
+    // a loop with no junction on it has no nodes at all
+    MazeGrid loop = new MazeGrid(2, 2);
+    loop.openAllWalls();
+    JunctionGraph loopJunctions = new JunctionGraph(loop);
+    t.checkExpect(loopJunctions.nodes(), 0);
+    t.checkExpect(loopJunctions.distance(0, 3), 2);
+    t.checkExpect(loopJunctions.path(0, 3), new int[] { 0, 2, 3 });
+    t.checkExpect(loopJunctions.path(1, 0), new int[] { 1, 0 });
+
+    // a cell walled off from the rest has no path to it
+    MazeGrid walled = new MazeGrid(3, 1);
+    walled.breakWall(0, MazeGrid.RIGHT);
+    JunctionGraph apart = new JunctionGraph(walled);
+    t.checkExpect(apart.nodes(), 3);
+    t.checkExpect(apart.edges(), 1);
+    t.checkExpect(apart.distance(0, 2), -1);
+    t.checkExpect(apart.path(0, 2), new int[0]);
+    t.checkExpect(apart.path(1, 0), new int[] { 1, 0 });
+  }
+
+  // is there an open wall between the two given cells?
+  boolean adjacentOpen(MazeGrid grid, int cell1, int cell2) {
+    for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+      if (grid.isOpen(cell1, dir) && grid.neighbor(cell1, dir) == cell2) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // is the grid a spanning tree, with every cell reachable from the top left
+  // and exactly size - 1 openings?
+  boolean isSpanningTree(MazeGrid grid) {
+    GridSearch search = new GridSearch(grid);
+    search.distancesFrom(0);
+    int reached = 0;
+    int openings = 0;
+    for (int cell = 0; cell < grid.size(); cell += 1) {
+      if (search.distanceTo(cell) != -1) {
+        reached += 1;
+      }
+      if (grid.isOpen(cell, MazeGrid.RIGHT)) {
+        openings += 1;
+      }
+      if (grid.isOpen(cell, MazeGrid.DOWN)) {
+        openings += 1;
+      }
+    }
+    return reached == grid.size() && openings == grid.size() - 1;
+  }
+
+  // returns how many cell sides are open in one of the two grids, of the same
+  // size, and not in the other
+  int wallDifferences(MazeGrid grid1, MazeGrid grid2) {
+    int differences = 0;
+    for (int cell = 0; cell < grid1.size(); cell += 1) {
+      for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+        if (grid1.isOpen(cell, dir) != grid2.isOpen(cell, dir)) {
+          differences += 1;
+        }
+      }
+    }
+    return differences;
+  }
+
+  // returns the first cell of the grid in the middle of a corridor
+  int corridorCell(MazeGrid grid) {
+    for (int cell = 0; cell < grid.size(); cell += 1) {
+      int open = 0;
+      for (int dir = MazeGrid.UP; dir <= MazeGrid.RIGHT; dir += 1) {
+        if (grid.isOpen(cell, dir)) {
+          open += 1;
+        }
+      }
+      if (open == 2 && cell != 0 && cell != grid.size() - 1) {
+        return cell;
+      }
+    }
+    return -1;
+  }
+
+  // testing the per-cell state arrays of a grid
+  void testGridState(Tester t) {
+    MazeGrid grid = new MazeGrid(3, 1);
+    grid.breakWall(0, MazeGrid.RIGHT);
+    GridState state = new GridState(grid.size());
+    t.checkExpect(state.isVisited(0), false);
+    t.checkExpect(state.previous(1), -1);
+
+    // moving into a wall only visits the cell
+    t.checkExpect(state.move(grid, 0, MazeGrid.DOWN), 0);
+    t.checkExpect(state.isVisited(0), true);
+    t.checkExpect(state.isHighlighted(0), false);
+
+    // moving through an open wall moves the highlight
+    state.highlight(0);
+    t.checkExpect(state.move(grid, 0, MazeGrid.RIGHT), 1);
+    t.checkExpect(state.isHighlighted(0), false);
+    t.checkExpect(state.isHighlighted(1), true);
+    t.checkExpect(state.previous(1), 0);
+
+    // visited cells keep the first cell they were reached from
+    state.visit(1);
+    state.updateCellHistory(1, 2);
+    t.checkExpect(state.previous(1), 0);
+    state.updateCellHistory(2, 1);
+    t.checkExpect(state.previous(2), 1);
+
+    // highlighting follows the path back to the start
+    state.highlight(2);
+    t.checkExpect(state.isHighlighted(2), true);
+    t.checkExpect(state.isHighlighted(0), true);
+  }
+
+  // testing both searches over a grid
+  void testGridSearchHelper(Tester t) {
+    MazeGrid grid = new MazeGrid(3, 3);
+    GridKruskal gk = new GridKruskal(grid, 100, 1, 1);
+    while (!gk.isFinished()) {
+      gk.iterate();
+    }
+
+    GridState state = new GridState(grid.size());
+    GridSearchHelper bfs = new GridSearchHelper(grid, state, 0, 8, new IntQueue());
+    t.checkExpect(bfs.isFinished(), false);
+    // the first step visits topLeft
+    bfs.iterate();
+    t.checkExpect(state.isVisited(0), true);
+    t.checkExpect(state.previous(3), 0);
+    while (!bfs.isFinished()) {
+      bfs.iterate();
+    }
+    // the path topLeft, middleLeft, bottomLeft, bottomMiddle, bottomRight
+    t.checkExpect(state.isHighlighted(8), true);
+    t.checkExpect(state.isHighlighted(7), true);
+    t.checkExpect(state.isHighlighted(6), true);
+    t.checkExpect(state.isHighlighted(3), true);
+    t.checkExpect(state.isHighlighted(0), true);
+    t.checkExpect(state.isHighlighted(4), false);
+    // bottomMiddle adds bottomRight before middleMiddle, so the search
+    // stops before expanding middleMiddle
+    t.checkExpect(state.isVisited(7), true);
+    t.checkExpect(state.isVisited(4), false);
+
+    state = new GridState(grid.size());
+    GridSearchHelper dfs = new GridSearchHelper(grid, state, 0, 8, new IntStack());
+    while (!dfs.isFinished()) {
+      dfs.iterate();
+    }
+    t.checkExpect(state.isHighlighted(7), true);
+    t.checkExpect(state.isHighlighted(4), false);
+  }
+
   // Tests for the Stack class
   public void testStack(Tester t) {
     // Test isEmpty() method
@@ -3111,4 +4626,184 @@ class Examples {
     t.checkException(new NoSuchElementException(), queue3, "remove");
   }
 
+  // Tests for the IntStack class
+  public void testIntStack(Tester t) {
+    IntStack stack = new IntStack();
+    t.checkExpect(stack.isEmpty(), true);
+    // adding past the starting capacity grows the array
+    for (int i = 0; i < 20; i += 1) {
+      stack.add(i);
+    }
+    t.checkExpect(stack.isEmpty(), false);
+    t.checkExpect(stack.remove(), 19);
+    t.checkExpect(stack.remove(), 18);
+    for (int i = 0; i < 18; i += 1) {
+      stack.remove();
+    }
+    t.checkExpect(stack.isEmpty(), true);
+    t.checkException(new NoSuchElementException(), stack, "remove");
+  }
+
+  // Tests for the IntQueue class
+  public void testIntQueue(Tester t) {
+    IntQueue queue = new IntQueue();
+    t.checkExpect(queue.isEmpty(), true);
+    // wrapping around the ring buffer, then growing it
+    for (int i = 0; i < 10; i += 1) {
+      queue.add(i);
+    }
+    for (int i = 0; i < 8; i += 1) {
+      queue.remove();
+    }
+    for (int i = 10; i < 30; i += 1) {
+      queue.add(i);
+    }
+    t.checkExpect(queue.remove(), 8);
+    t.checkExpect(queue.remove(), 9);
+    t.checkExpect(queue.remove(), 10);
+    for (int i = 11; i < 30; i += 1) {
+      queue.remove();
+    }
+    t.checkExpect(queue.isEmpty(), true);
+    t.checkException(new NoSuchElementException(), queue, "remove");
+  }
+
+  // Tests for the IntUnionFind class
+  public void testIntUnionFind(Tester t) {
+    IntUnionFind uf = new IntUnionFind(5);
+    t.checkExpect(uf.size(), 5);
+    t.checkExpect(uf.unions(), 0);
+    // every element starts as its own representative
+    t.checkExpect(uf.find(3), 3);
+
+    // a tie puts the first root under the second
+    t.checkExpect(uf.union(0, 1), true);
+    t.checkExpect(uf.find(0), 1);
+    t.checkExpect(uf.find(1), 1);
+
+    // the shallower tree goes under the deeper one
+    t.checkExpect(uf.union(1, 2), true);
+    t.checkExpect(uf.find(2), 1);
+    t.checkExpect(uf.union(3, 4), true);
+    t.checkExpect(uf.union(0, 4), true);
+    t.checkExpect(uf.find(3), 4);
+    t.checkExpect(uf.find(0), 4);
+
+    // merging elements in the same set fails and does not count
+    t.checkExpect(uf.union(2, 3), false);
+    t.checkExpect(uf.unions(), 4);
+  }
+
+  // testing the indexed heap of longs
+  void testIndexedLongHeap(Tester t) {
+    IndexedLongHeap heap = new IndexedLongHeap(6);
+    t.checkExpect(heap.isEmpty(), true);
+    t.checkException(new NoSuchElementException("Heap is empty"), heap, "remove");
+    t.checkExpect(heap.offer(3, 50), true);
+    t.checkExpect(heap.offer(1, 20), true);
+    t.checkExpect(heap.offer(5, -7), true);
+    t.checkExpect(heap.offer(0, 20), true);
+    t.checkExpect(heap.size(), 4);
+    t.checkExpect(heap.contains(3), true);
+    t.checkExpect(heap.contains(2), false);
+    t.checkExpect(heap.peek(), 5);
+    // keys are only ever lowered
+    t.checkExpect(heap.offer(3, 60), false);
+    t.checkExpect(heap.key(3), 50L);
+    t.checkExpect(heap.offer(3, -10), true);
+    t.checkExpect(heap.remove(), 3);
+    t.checkExpect(heap.contains(3), false);
+    t.checkExpect(heap.remove(), 5);
+    int tied = heap.remove();
+    t.checkExpect(tied == 0 || tied == 1, true);
+    t.checkExpect(heap.remove(), 1 - tied);
+    t.checkExpect(heap.isEmpty(), true);
+    // removed items can come back
+    t.checkExpect(heap.offer(3, 1), true);
+    t.checkExpect(heap.remove(), 3);
+    // clearing forgets what is left
+    heap.offer(1, 4);
+    heap.offer(2, 5);
+    heap.clear();
+    t.checkExpect(heap.isEmpty(), true);
+    t.checkExpect(heap.contains(1), false);
+    t.checkExpect(heap.offer(2, 9), true);
+    t.checkExpect(heap.remove(), 2);
+  }
+
+  // testing the set of marks that empties in constant time
+  void testEpochMarks(Tester t) {
+    EpochMarks marks = new EpochMarks(4);
+    t.checkExpect(marks.size(), 4);
+    t.checkExpect(marks.isMarked(2), false);
+    marks.mark(2);
+    marks.mark(3);
+    t.checkExpect(marks.isMarked(2), true);
+    t.checkExpect(marks.isMarked(1), false);
+    marks.clear();
+    t.checkExpect(marks.isMarked(2), false);
+    t.checkExpect(marks.isMarked(3), false);
+    marks.mark(1);
+    t.checkExpect(marks.isMarked(1), true);
+
+    // two searches of the same maze can share the marks
+    MazeGrid grid = new MazeGrid(5, 4);
+    GridKruskal kruskal = new GridKruskal(grid, new HashedWeights(2, 1, 1));
+    while (!kruskal.isFinished()) {
+      kruskal.iterate();
+    }
+    EpochMarks shared = new EpochMarks(grid.size());
+    int[] steps = new int[2];
+    for (int run = 0; run < 2; run += 1) {
+      GridSearchHelper search = new GridSearchHelper(grid, new GridState(grid.size()), 0, 19,
+          new IntQueue(), shared);
+      while (!search.isFinished()) {
+        search.iterate();
+        steps[run] += 1;
+      }
+    }
+    t.checkExpect(steps[1], steps[0]);
+
+    // two searches of the same cells keep their own marks
+    init();
+    initEdges();
+    KruskalsUnionFind kuf = new KruskalsUnionFind(edges);
+    while (!kuf.isFinished()) {
+      kuf.iterate();
+    }
+    SearchHelper first = new SearchHelper(topLeft, bottomRight, new Queue<Cell>(),
+        new EpochMarks(9), 3);
+    SearchHelper second = new SearchHelper(topLeft, bottomRight, new Queue<Cell>(),
+        new EpochMarks(9), 3);
+    int[] cellSteps = new int[2];
+    while (!first.isFinished() || !second.isFinished()) {
+      if (!first.isFinished()) {
+        first.iterate();
+        cellSteps[0] += 1;
+      }
+      if (!second.isFinished()) {
+        second.iterate();
+        cellSteps[1] += 1;
+      }
+    }
+    t.checkExpect(cellSteps[1], cellSteps[0]);
+    // and the marks can be shared from one search to the next
+    EpochMarks cellMarks = new EpochMarks(9);
+    int[] sharedSteps = new int[2];
+    for (int run = 0; run < 2; run += 1) {
+      SearchHelper search = new SearchHelper(topLeft, bottomRight, new Queue<Cell>(),
+          cellMarks, 3);
+      while (!search.isFinished()) {
+        search.iterate();
+        sharedSteps[run] += 1;
+      }
+    }
+    t.checkExpect(sharedSteps[1], sharedSteps[0]);
+    // a cell outside the maze the marks were made for can't be marked
+    init();
+    SearchHelper small = new SearchHelper(topRight, middleMiddle, new Queue<Cell>(),
+        new EpochMarks(4), 2);
+    t.checkException(new IllegalArgumentException("Cell is outside the maze"), small,
+        "iterate");
+  }
 }